@@ -0,0 +1,130 @@
+package ro.isdc.wro.runner.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates deterministic SCSS, CSS and JS inputs for the benchmarks.
+ *
+ * @author Ricardo Nunes
+ */
+public final class BenchmarkCorpus {
+	private static final long SEED = 20160208L;
+	private static final int COLORS = 16;
+	public static final String ENTRY_FILE = "main.scss";
+
+	private BenchmarkCorpus() {
+	}
+
+	/**
+	 * Writes a tree of SCSS partials using namespaced and global {@code @use}
+	 * rules into the folder.
+	 *
+	 * @return the entry file importing all the partials.
+	 */
+	public static File writeScssTree(final File folder, final CorpusSize size) throws IOException {
+		final Random random = new Random(SEED);
+		final StringBuilder variables = new StringBuilder();
+		for (int i = 0; i < COLORS; i++) {
+			variables.append("$color-").append(i).append(": ").append(color(random)).append(";\n");
+		}
+		variables.append("$spacing: 8px;\n");
+		write(new File(folder, "_variables.scss"), variables);
+
+		final StringBuilder mixins = new StringBuilder();
+		mixins.append("@mixin border-color($color, $side) {\n  border-#{$side}: 1px solid $color;\n}\n");
+		mixins.append("@mixin centered {\n  display: flex;\n  align-items: center;\n  justify-content: center;\n}\n");
+		write(new File(folder, "_mixins.scss"), mixins);
+
+		final StringBuilder entry = new StringBuilder();
+		entry.append("@use '_variables' as var;\n");
+		entry.append("@use '_mixins' as *;\n");
+		for (int i = 0; i < size.getFiles(); i++) {
+			final StringBuilder partial = new StringBuilder();
+			partial.append("@use '../_variables' as var;\n");
+			partial.append("@use '../_mixins' as mix;\n");
+			partial.append("// component ").append(i).append("\n");
+			for (int j = 0; j < size.getRulesPerFile(); j++) {
+				partial.append(".component-").append(i).append("__element-").append(j).append(" {\n");
+				partial.append("  color: var.$color-").append(random.nextInt(COLORS)).append(";\n");
+				partial.append("  padding: var.$spacing * ").append(1 + random.nextInt(4)).append(";\n");
+				partial.append("  margin: 0px ").append(random.nextInt(20)).append("px;\n");
+				partial.append("  @include mix.border-color(var.$color-").append(random.nextInt(COLORS))
+						.append(", bottom);\n");
+				partial.append("  &:hover {\n    background: var.$color-").append(random.nextInt(COLORS))
+						.append(";\n  }\n");
+				partial.append("  /* comment ").append(j).append(" */\n");
+				partial.append("}\n");
+			}
+			write(new File(folder, "components/_component-" + i + ".scss"), partial);
+			entry.append("@use 'components/_component-").append(i).append("';\n");
+		}
+		entry.append(".page {\n  @include centered;\n  color: var.$color-0;\n}\n");
+		final File entryFile = new File(folder, ENTRY_FILE);
+		write(entryFile, entry);
+		return entryFile;
+	}
+
+	/**
+	 * @return plain, expanded css.
+	 */
+	public static String css(final CorpusSize size) {
+		final Random random = new Random(SEED);
+		final StringBuilder css = new StringBuilder();
+		final int rules = size.getFiles() * size.getRulesPerFile();
+		for (int i = 0; i < rules; i++) {
+			css.append("/* rule ").append(i).append(" */\n");
+			css.append(".block-").append(i % 97).append(" > .element-").append(i).append(":hover,\n");
+			css.append(".block-").append(i % 97).append(" .element-").append(i).append(" {\n");
+			css.append("    color: ").append(color(random)).append(";\n");
+			css.append("    margin: 0px 0px 0px 0px;\n");
+			css.append("    padding: 0.5em ").append(random.nextInt(30)).append("px;\n");
+			css.append("    background: url(\"images/bg-").append(i % 13).append(".png\") no-repeat;\n");
+			css.append("    border: 1px solid ").append(color(random)).append(";\n");
+			css.append("}\n\n");
+		}
+		return css.toString();
+	}
+
+	/**
+	 * @return unminified javascript.
+	 */
+	public static String js(final CorpusSize size) {
+		final Random random = new Random(SEED);
+		final StringBuilder js = new StringBuilder();
+		for (int i = 0; i < size.getFiles(); i++) {
+			js.append("var module").append(i).append(" = (function () {\n");
+			js.append("  'use strict';\n");
+			for (int j = 0; j < size.getRulesPerFile(); j++) {
+				js.append("  /**\n   * Computes value ").append(j).append(".\n   */\n");
+				js.append("  function compute").append(j).append("(input, options) {\n");
+				js.append("    var result = [];\n");
+				js.append("    for (var index = 0; index < input.length; index++) {\n");
+				js.append("      if (input[index] > ").append(random.nextInt(100)).append(") {\n");
+				js.append("        result.push(input[index] * ").append(1 + random.nextInt(9)).append(");\n");
+				js.append("      }\n    }\n");
+				js.append("    return options && options.reverse ? result.reverse() : result;\n");
+				js.append("  }\n");
+			}
+			js.append("  return {\n");
+			for (int j = 0; j < size.getRulesPerFile(); j++) {
+				js.append("    compute").append(j).append(": compute").append(j)
+						.append(j + 1 < size.getRulesPerFile() ? ",\n" : "\n");
+			}
+			js.append("  };\n}());\n\n");
+		}
+		return js.toString();
+	}
+
+	private static String color(final Random random) {
+		return String.format("#%06x", random.nextInt(0x1000000));
+	}
+
+	private static void write(final File file, final CharSequence content) throws IOException {
+		FileUtils.writeStringToFile(file, content.toString(), StandardCharsets.UTF_8.name());
+	}
+}
@@ -0,0 +1,51 @@
+package ro.isdc.wro.runner.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.isdc.wro.runner.processor.RunnerCSSCompressorProcessor;
+import ro.isdc.wro.runner.processor.RunnerCSSMinifierProcessor;
+
+/**
+ * Minification of generated css by {@link RunnerCSSCompressorProcessor}.
+ *
+ * @author Ricardo Nunes
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CSSCompressorProcessorBenchmark {
+	@Param
+	public CorpusSize size;
+
+	private RunnerCSSCompressorProcessor processor;
+	private RunnerCSSMinifierProcessor minifier;
+	private String css;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		css = BenchmarkCorpus.css(size);
+		processor = new RunnerCSSCompressorProcessor();
+		minifier = new RunnerCSSMinifierProcessor();
+	}
+
+	@Benchmark
+	public String yuiCompressor() throws IOException {
+		return ProcessorBenchmarkSupport.process(processor, null, css);
+	}
+
+	@Benchmark
+	public String streamingMinifier() throws IOException {
+		return ProcessorBenchmarkSupport.process(minifier, null, css);
+	}
+}
@@ -0,0 +1,59 @@
+package ro.isdc.wro.runner.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.ResourceType;
+import ro.isdc.wro.runner.processor.RunnerCSSImportProcessor;
+
+/**
+ * Flattening of a generated SCSS partial tree by {@link RunnerCSSImportProcessor}.
+ *
+ * @author Ricardo Nunes
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CSSImportProcessorBenchmark {
+	@Param
+	public CorpusSize size;
+
+	private File folder;
+	private RunnerCSSImportProcessor processor;
+	private Resource entry;
+	private String content;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		folder = new File(FileUtils.getTempDirectory(), "wro4j-runner-benchmark-" + System.nanoTime());
+		final File entryFile = BenchmarkCorpus.writeScssTree(folder, size);
+		entry = Resource.create(entryFile.toURI().toURL().toString(), ResourceType.CSS);
+		content = FileUtils.readFileToString(entryFile, StandardCharsets.UTF_8.name());
+		processor = ProcessorBenchmarkSupport.inject(new RunnerCSSImportProcessor());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.deleteQuietly(folder);
+	}
+
+	@Benchmark
+	public String flatten() throws IOException {
+		return ProcessorBenchmarkSupport.process(processor, entry, content);
+	}
+}
@@ -0,0 +1,48 @@
+package ro.isdc.wro.runner.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.isdc.wro.extensions.processor.js.CustomGoogleClosureCompressorProcessor;
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.ResourceType;
+
+/**
+ * Minification of generated javascript by
+ * {@link CustomGoogleClosureCompressorProcessor}.
+ *
+ * @author Ricardo Nunes
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClosureCompressorProcessorBenchmark {
+	@Param
+	public CorpusSize size;
+
+	private CustomGoogleClosureCompressorProcessor processor;
+	private Resource resource;
+	private String js;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		js = BenchmarkCorpus.js(size);
+		resource = Resource.create("/js/generated.js", ResourceType.JS);
+		processor = ProcessorBenchmarkSupport.inject(new CustomGoogleClosureCompressorProcessor());
+	}
+
+	@Benchmark
+	public String closureCompressor() throws IOException {
+		return ProcessorBenchmarkSupport.process(processor, resource, js);
+	}
+}
@@ -0,0 +1,32 @@
+package ro.isdc.wro.runner.benchmark;
+
+/**
+ * The sizes of the generated benchmark corpus.
+ *
+ * @author Ricardo Nunes
+ */
+public enum CorpusSize {
+	SMALL(5, 10), MEDIUM(20, 50), LARGE(60, 200);
+
+	private final int files;
+	private final int rulesPerFile;
+
+	private CorpusSize(final int files, final int rulesPerFile) {
+		this.files = files;
+		this.rulesPerFile = rulesPerFile;
+	}
+
+	/**
+	 * @return the number of partials (SCSS) or functions groups (JS) to generate.
+	 */
+	public int getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return the number of rules (SCSS, CSS) or functions (JS) per file.
+	 */
+	public int getRulesPerFile() {
+		return rulesPerFile;
+	}
+}
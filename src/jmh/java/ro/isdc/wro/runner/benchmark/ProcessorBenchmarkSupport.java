@@ -0,0 +1,45 @@
+package ro.isdc.wro.runner.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import ro.isdc.wro.config.Context;
+import ro.isdc.wro.manager.factory.BaseWroManagerFactory;
+import ro.isdc.wro.model.group.processor.InjectorBuilder;
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.processor.ResourcePreProcessor;
+import ro.isdc.wro.model.resource.processor.factory.SimpleProcessorsFactory;
+
+/**
+ * Helpers shared by the processor benchmarks.
+ *
+ * @author Ricardo Nunes
+ */
+public final class ProcessorBenchmarkSupport {
+	private ProcessorBenchmarkSupport() {
+	}
+
+	/**
+	 * Sets a standalone {@link Context} on the current thread and injects the
+	 * processor. The processor is also the only pre processor applied on
+	 * imported resources.
+	 */
+	public static <T extends ResourcePreProcessor> T inject(final T processor) {
+		Context.set(Context.standaloneContext());
+		final BaseWroManagerFactory managerFactory = new BaseWroManagerFactory();
+		managerFactory.setProcessorsFactory(new SimpleProcessorsFactory().addPreProcessor(processor));
+		InjectorBuilder.create(managerFactory).build().inject(processor);
+		return processor;
+	}
+
+	/**
+	 * @return the result of applying the processor on the content.
+	 */
+	public static String process(final ResourcePreProcessor processor, final Resource resource, final String content)
+			throws IOException {
+		final StringWriter writer = new StringWriter(content.length());
+		processor.process(resource, new StringReader(content), writer);
+		return writer.toString();
+	}
+}
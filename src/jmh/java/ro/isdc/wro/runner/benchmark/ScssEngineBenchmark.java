@@ -0,0 +1,82 @@
+package ro.isdc.wro.runner.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.ResourceType;
+import ro.isdc.wro.runner.processor.RunnerCSSImportProcessor;
+import ro.isdc.wro.runner.processor.RunnerSCSSProcessor;
+import ro.isdc.wro.runner.processor.css.ScssEngine;
+
+/**
+ * Compilation of flattened SCSS by {@link ScssEngine}, using warm embedded Sass
+ * processes, and by {@link RunnerSCSSProcessor} when the result is served from
+ * its compile cache.
+ *
+ * @author Ricardo Nunes
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScssEngineBenchmark {
+	@Param
+	public CorpusSize size;
+
+	private ScssEngine engine;
+	private RunnerSCSSProcessor processor;
+	private String flattened;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final File folder = new File(FileUtils.getTempDirectory(), "wro4j-runner-benchmark-" + System.nanoTime());
+		try {
+			final File entryFile = BenchmarkCorpus.writeScssTree(folder, size);
+			final Resource entry = Resource.create(entryFile.toURI().toURL().toString(), ResourceType.CSS);
+			flattened = ProcessorBenchmarkSupport.process(
+					ProcessorBenchmarkSupport.inject(new RunnerCSSImportProcessor()), entry,
+					FileUtils.readFileToString(entryFile, StandardCharsets.UTF_8.name()));
+		} finally {
+			FileUtils.deleteQuietly(folder);
+		}
+		engine = new ScssEngine(1);
+		processor = new RunnerSCSSProcessor().setPoolSize(1);
+		// warm up the embedded process and fill the compile cache
+		engine.process(BenchmarkCorpus.ENTRY_FILE, flattened);
+		compileCached();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		engine.destroy();
+		processor.destroy();
+	}
+
+	@Benchmark
+	public String compile() {
+		return engine.process(BenchmarkCorpus.ENTRY_FILE, flattened);
+	}
+
+	@Benchmark
+	public String compileCached() throws IOException {
+		final StringWriter writer = new StringWriter();
+		processor.process(new StringReader(flattened), writer);
+		return writer.toString();
+	}
+}
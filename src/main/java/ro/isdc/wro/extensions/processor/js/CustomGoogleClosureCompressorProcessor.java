@@ -4,6 +4,7 @@ import java.nio.charset.Charset;
 
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.ClosureCodingConvention;
+import com.google.javascript.jscomp.CodingConvention;
 import com.google.javascript.jscomp.CompilerOptions;
 import com.google.javascript.jscomp.DiagnosticGroups;
 
@@ -16,6 +17,11 @@ import ro.isdc.wro.model.resource.SupportedResourceType;
 @SupportedResourceType(ResourceType.JS)
 public class CustomGoogleClosureCompressorProcessor extends GoogleClosureCompressorProcessor {
 	public static final String ALIAS = "googleClosureEcma6";
+	/**
+	 * Stateless, shared by the options of all the compilations.
+	 */
+	private static final CodingConvention CODING_CONVENTION = new ClosureCodingConvention();
+	private static final Charset OUTPUT_CHARSET = Charset.forName(WroConfiguration.DEFAULT_ENCODING);
 
 	@Override
 	protected CompilerOptions newCompilerOptions() {
@@ -25,13 +31,13 @@ public class CustomGoogleClosureCompressorProcessor extends GoogleClosureCompres
 		 * the Compiler API directly, you should specify a CodingConvention.
 		 * {@link http://code.google.com/p/wro4j/issues/detail?id=155}
 		 */
-		options.setCodingConvention(new ClosureCodingConvention());
+		options.setCodingConvention(CODING_CONVENTION);
 		// use the wro4j encoding by default
 		//options.setOutputCharset(Charset.forName(super.getEncoding()));
-		options.setOutputCharset(Charset.forName(WroConfiguration.DEFAULT_ENCODING));
+		options.setOutputCharset(OUTPUT_CHARSET);
 		// set it to warning, otherwise compiler will fail
 		options.setWarningLevel(DiagnosticGroups.CHECK_VARIABLES, CheckLevel.WARNING);
 		return options;
 	}
 
-}
\ No newline at end of file
+}
@@ -7,42 +7,45 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
-import javax.servlet.FilterConfig;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
-
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
-import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ro.isdc.wro.WroRuntimeException;
 import ro.isdc.wro.config.Context;
 import ro.isdc.wro.config.factory.PropertyWroConfigurationFactory;
 import ro.isdc.wro.config.jmx.WroConfiguration;
 import ro.isdc.wro.extensions.model.factory.SmartWroModelFactory;
 import ro.isdc.wro.extensions.processor.css.CssLintProcessor;
 import ro.isdc.wro.extensions.processor.js.JsHintProcessor;
-import ro.isdc.wro.http.support.DelegatingServletOutputStream;
 import ro.isdc.wro.manager.WroManager;
 import ro.isdc.wro.manager.factory.WroManagerFactory;
 import ro.isdc.wro.manager.factory.standalone.DefaultStandaloneContextAwareManagerFactory;
@@ -51,17 +54,43 @@ import ro.isdc.wro.manager.factory.standalone.StandaloneContextAware;
 import ro.isdc.wro.model.WroModel;
 import ro.isdc.wro.model.WroModelInspector;
 import ro.isdc.wro.model.factory.WroModelFactory;
+import ro.isdc.wro.model.group.Group;
+import ro.isdc.wro.model.resource.Resource;
 import ro.isdc.wro.model.resource.ResourceType;
+import ro.isdc.wro.model.resource.locator.factory.UriLocatorFactory;
 import ro.isdc.wro.model.resource.processor.ResourcePostProcessor;
 import ro.isdc.wro.model.resource.processor.ResourcePreProcessor;
 import ro.isdc.wro.model.resource.processor.factory.ConfigurableProcessorsFactory;
 import ro.isdc.wro.model.resource.processor.factory.ProcessorsFactory;
 import ro.isdc.wro.model.resource.support.naming.ConfigurableNamingStrategy;
 import ro.isdc.wro.model.resource.support.naming.NamingStrategy;
+import ro.isdc.wro.runner.processor.RunnerCSSImportProcessor;
 import ro.isdc.wro.runner.processor.RunnerCssLintProcessor;
 import ro.isdc.wro.runner.processor.RunnerJsHintProcessor;
+import ro.isdc.wro.runner.processor.RunnerSCSSProcessor;
+import ro.isdc.wro.runner.processor.css.SassCompilerPool;
+import ro.isdc.wro.runner.processor.css.ScssDirectoryCompiler;
+import ro.isdc.wro.runner.support.BuildManifest;
+import ro.isdc.wro.runner.support.CachingUriLocatorFactory;
+import ro.isdc.wro.runner.support.CachingWroModelFactory;
+import ro.isdc.wro.runner.support.ChangeWatcher;
+import ro.isdc.wro.runner.support.CpuBoundProcessor;
+import ro.isdc.wro.runner.support.DeferredLintProcessor;
+import ro.isdc.wro.runner.support.DependencyCollector;
+import ro.isdc.wro.runner.support.GroupOutputStream;
+import ro.isdc.wro.runner.support.GroupTimings;
+import ro.isdc.wro.runner.support.HashUtils;
+import ro.isdc.wro.runner.support.InlineDigestHashStrategy;
+import ro.isdc.wro.runner.support.LintQueue;
+import ro.isdc.wro.runner.support.MemoryBudget;
+import ro.isdc.wro.runner.support.ModelCache;
+import ro.isdc.wro.runner.support.NoOpCacheStrategy;
+import ro.isdc.wro.runner.support.OutputStats;
+import ro.isdc.wro.runner.support.ParallelGzip;
+import ro.isdc.wro.runner.support.ProcessingReport;
+import ro.isdc.wro.runner.support.StandaloneServletObjects;
+import ro.isdc.wro.runner.support.TimedProcessor;
 import ro.isdc.wro.util.StopWatch;
-import ro.isdc.wro.util.io.UnclosableBufferedInputStream;
 
 /**
  * Default command line runner. Interprets arguments and perform a processing.
@@ -71,6 +100,11 @@ import ro.isdc.wro.util.io.UnclosableBufferedInputStream;
  */
 public class Wro4jCommandLineRunner {
 	private static final Logger LOG = LoggerFactory.getLogger(Wro4jCommandLineRunner.class);
+	/**
+	 * Names of the model files autodetected by {@link SmartWroModelFactory}.
+	 */
+	private static final String[] MODEL_FILE_NAMES = { "wro.xml", "wro.groovy", "wro.json" };
+	private static final long DEFAULT_RESOURCE_CACHE_SIZE = 64L * 1024 * 1024;
 	private static String userDirectory = System.getProperty("user.dir");
 	private final File defaultWroFile = newDefaultWroFile();
 
@@ -97,10 +131,80 @@ public class Wro4jCommandLineRunner {
 	private String preProcessorsList;
 	@Option(name = "--postProcessors", metaVar = "POST_PROCESSOR", usage = "Comma separated list of post-processors")
 	private String postProcessorsList;
-	@Option(name = "--cssOnly", metaVar = "CSS_ONLY", usage = "Ignore JS files on group parallel processing")
+	@Option(name = "--threads", metaVar = "COUNT", usage = "Number of threads used by the parallel group processing. By default the number of available processors minus one.")
+	private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	@Option(name = "--virtualThreads", usage = "Processes each group on its own virtual thread (requires JDK 21 or later), compressors and linters are limited to one call per available processor.")
+	private boolean virtualThreads;
+	@Deprecated
+	@Option(name = "--cssOnly", metaVar = "CSS_ONLY", usage = "Deprecated, group and resource type pairs without resources are skipped anyway. Ignore JS files on group parallel processing")
 	private boolean cssOnly;
+	@Option(name = "--scssPoolSize", metaVar = "SIZE", usage = "Number of embedded Sass processes kept alive during the run. By default half of the available processors.")
+	private int scssPoolSize = SassCompilerPool.DEFAULT_POOL_SIZE;
+	@Option(name = "--scssCacheFolder", metaVar = "PATH", usage = "Folder where compiled SCSS is cached between runs. By default only an in memory cache is used.")
+	private File scssCacheFolder;
+	@Option(name = "--scssModules", usage = "Compiles SCSS with Sass modules: scssCssCompiler used as a pre processor lets Sass load the @use and @import rules through wro4j, instead of compiling the content flattened by scssCssImport.")
+	private boolean scssModules;
+	@Option(name = "--incremental", usage = "Process only the groups whose inputs changed since the previous run. A manifest of the inputs is stored in the destination folder.")
+	private boolean incremental;
+	@Option(name = "--watch", usage = "Keeps running after processing: watches the context folder, the wro file and the wro.properties file for changes and processes again only the affected groups.")
+	private boolean watch;
+	@Option(name = "--report", metaVar = "PATH", usage = "Writes a JSON report with the duration of every group and of every processor call.")
+	private File reportFile;
+	@Option(name = "--reportTop", metaVar = "COUNT", usage = "Number of the slowest groups and processors logged when --report is used. By default 10.")
+	private int reportTop = ProcessingReport.DEFAULT_TOP;
+	@Option(name = "--gzip", usage = "Writes a gzip compressed copy of every output next to it, with the .gz extension.")
+	private boolean gzip;
+	@Option(name = "--gzipLevel", metaVar = "LEVEL", usage = "Compression level used by --gzip, from 1 to 9. By default 9.")
+	private int gzipLevel = Deflater.BEST_COMPRESSION;
+	@Option(name = "--parallelLint", usage = "Lints the resources on a separate pool of threads while the groups are processed. The errors are reported at the end of the run, which then fails.")
+	private boolean parallelLint;
+	@Option(name = "--lintThreads", metaVar = "COUNT", usage = "Number of threads used by --parallelLint. By default half of the available processors.")
+	private int lintThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	@Option(name = "--scssInput", metaVar = "PATH", usage = "Compiles every SCSS entry of this folder (files not starting with an underscore) with libsass, without a wro model. Uses --threads threads.")
+	private File scssInput;
+	@Option(name = "--scssOutput", metaVar = "PATH", usage = "Where the entries of --scssInput are compiled. By default the destination folder.")
+	private File scssOutput;
+	@Option(name = "--includePath", metaVar = "PATHS", usage = "Folders searched for the imports of the --scssInput entries, separated by the path separator of the platform.")
+	private String includePath;
+	@Option(name = "--maxInFlightBytes", metaVar = "BYTES", usage = "Memory budget of the parallel group processing: groups are started only while the estimated size of the groups in progress fits. By default unlimited.")
+	private long maxInFlightBytes;
+	@Option(name = "--noModelCache", usage = "Parses the model on every run, instead of reusing the model cached in the destination folder while the model file does not change.")
+	private boolean noModelCache;
+	@Option(name = "--resourceCacheSize", metaVar = "BYTES", usage = "Maximum size of the cache of the resource files read during the run, 0 to read them every time. By default 64MB.")
+	private long resourceCacheSize = DEFAULT_RESOURCE_CACHE_SIZE;
 
 	private Properties wroConfigurationAsProperties;
+	private WroConfiguration wroConfiguration;
+	/**
+	 * Shared by all groups of a run, so that the embedded Sass processes are
+	 * started only once.
+	 */
+	private RunnerSCSSProcessor scssProcessor;
+	private final DependencyCollector dependencyCollector = new DependencyCollector();
+	private BuildManifest buildManifest;
+	/**
+	 * Durations of the groups, used to schedule the parallel group processing.
+	 */
+	private GroupTimings groupTimings;
+	private ProcessingReport report;
+	private final OutputStats outputStats = new OutputStats();
+	private ParallelGzip parallelGzip;
+	private LintQueue lintQueue;
+	private MemoryBudget memoryBudget;
+	/**
+	 * Installed by the manager factory, see {@link #getManagerFactory()}.
+	 */
+	private volatile CachingUriLocatorFactory uriLocatorFactory;
+	/**
+	 * Limits the CPU heavy processors when groups run on virtual threads.
+	 */
+	private final Semaphore cpuPermits = new Semaphore(Runtime.getRuntime().availableProcessors());
+	/**
+	 * Created once per run and shared by all groups, see
+	 * {@link #getManagerFactory()}.
+	 */
+	private volatile WroManagerFactory managerFactory;
+	private CachingWroModelFactory modelFactory;
 
 	public static void main(final String[] args) throws Exception {
 		new Wro4jCommandLineRunner().doMain(args);
@@ -176,79 +280,498 @@ public class Wro4jCommandLineRunner {
 		System.exit(1); // non-zero exit code indicates there was an error
 	}
 
-	private void process() {
-		if (parallelGroupprocessing) {
-			parallelProcess();
-		} else {
-			normalProcess();
+	private void process() throws IOException {
+		if (scssInput != null) {
+			new ScssDirectoryCompiler(scssInput, scssOutput == null ? destinationFolder : scssOutput, includePath,
+					Math.max(1, threads)).compile();
+			return;
+		}
+		try {
+			if (reportFile != null) {
+				report = new ProcessingReport();
+			}
+			if (incremental || watch) {
+				initBuildManifest();
+			}
+			if (maxInFlightBytes > 0) {
+				memoryBudget = new MemoryBudget(maxInFlightBytes, getContextFolder());
+			}
+			if (gzip) {
+				// fails early on an invalid level
+				getParallelGzip();
+			}
+			final List<String> groups;
+			try {
+				groups = getTargetGroupsWithExtension();
+			} catch (final IOException e) {
+				System.err.println(e.getMessage());
+				return;
+			}
+			if (watch) {
+				try {
+					processGroups(groups);
+				} catch (final Exception e) {
+					// the tree is often broken at startup, the next change may fix it
+					LOG.error("Build failed", e);
+				}
+				watch();
+			} else {
+				processGroups(groups);
+			}
+		} finally {
+			destroyProcessors();
+		}
+	}
+
+	private void initBuildManifest() throws IOException {
+		Context.set(Context.standaloneContext());
+		buildManifest = new BuildManifest(getContextFolder(), destinationFolder, computeConfigurationFingerprint());
+		// load the model before any group is processed
+		getModel();
+	}
+
+	/**
+	 * @param groups the names of the groups to process, with extension.
+	 */
+	private void processGroups(final Collection<String> groups) {
+		Set<String> lintFailedGroups = Collections.emptySet();
+		try {
+			if (parallelGroupprocessing || virtualThreads) {
+				parallelProcess(groups);
+			} else {
+				normalProcess(groups);
+			}
+		} finally {
+			if (lintQueue != null) {
+				// before saving the manifest, so that groups with lint errors are not up to date
+				lintFailedGroups = lintQueue.awaitAndReport();
+			}
+			if (buildManifest != null) {
+				for (final String group : lintFailedGroups) {
+					buildManifest.markFailed(group);
+				}
+				buildManifest.save();
+			}
+			if (report != null) {
+				writeReport();
+			}
+			outputStats.logAndReset();
+			if (uriLocatorFactory != null) {
+				uriLocatorFactory.logAndReset();
+			}
+		}
+		if (!lintFailedGroups.isEmpty()) {
+			throw new WroRuntimeException("Linting found errors in groups: " + lintFailedGroups);
+		}
+	}
+
+	private void writeReport() {
+		try {
+			report.write(reportFile);
+		} catch (final IOException e) {
+			LOG.error("Cannot write the processing report: " + reportFile, e);
+		}
+		report.logSummary(reportTop);
+		report.reset();
+	}
+
+	/**
+	 * Keeps the processors warm and processes again the groups affected by each
+	 * change of the context folder, of the model or of the configuration file.
+	 */
+	private void watch() throws IOException {
+		final ChangeWatcher watcher = new ChangeWatcher(Arrays.asList(destinationFolder),
+				ChangeWatcher.DEFAULT_DEBOUNCE_MILLIS);
+		try {
+			watcher.watchTree(getContextFolder());
+			watcher.watch(wroFile.getAbsoluteFile().getParentFile());
+			if (wroConfigurationFile != null && wroConfigurationFile.getAbsoluteFile().getParentFile().isDirectory()) {
+				watcher.watch(wroConfigurationFile.getAbsoluteFile().getParentFile());
+			}
+			// stop the embedded processes when the user stops the runner
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					destroyProcessors();
+				}
+			});
+			LOG.info("Watching {} for changes...", getContextFolder().getAbsolutePath());
+			while (!Thread.currentThread().isInterrupted()) {
+				final Set<File> changes = watcher.awaitChanges();
+				if (!changes.isEmpty()) {
+					rebuild(changes);
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			watcher.close();
+		}
+	}
+
+	private void rebuild(final Set<File> changes) {
+		final long start = System.currentTimeMillis();
+		try {
+			final Collection<String> groups = getAffectedGroups(changes);
+			if (!groups.isEmpty()) {
+				processGroups(groups);
+			}
+			LOG.info("Rebuild of {} group(s) took: {}ms", groups.size(), System.currentTimeMillis() - start);
+		} catch (final Exception e) {
+			LOG.error("Rebuild failed", e);
+		}
+	}
+
+	/**
+	 * @return the names of the groups, with extension, which may be affected by
+	 *         the changed files.
+	 */
+	private Collection<String> getAffectedGroups(final Set<File> changes) throws IOException {
+		final List<String> uris = new ArrayList<String>();
+		boolean modelChanged = false;
+		boolean configurationChanged = false;
+		boolean checkAll = false;
+		for (final File file : changes) {
+			if (isConfigurationFile(file)) {
+				configurationChanged = true;
+			} else if (isModelFile(file)) {
+				modelChanged = true;
+			} else if (file.isDirectory()) {
+				// new folder or lost events, let the manifest decide
+				checkAll = true;
+			} else {
+				final String uri = toContextRelativeUri(file);
+				if (uri != null) {
+					uris.add(uri);
+				}
+			}
+		}
+		if (configurationChanged) {
+			LOG.info("Configuration changed, reloading");
+			synchronized (this) {
+				// processors are created again using the new configuration
+				destroyProcessors();
+				wroConfigurationAsProperties = null;
+				wroConfiguration = null;
+			}
+			initBuildManifest();
+			return getTargetGroupsWithExtension();
+		}
+		if (modelChanged) {
+			LOG.info("Model changed, reloading");
+			// the manager decorates the model factory with its own lazily created model
+			destroyManagerFactory();
+			initBuildManifest();
+			return getTargetGroupsWithExtension();
+		}
+		if (checkAll) {
+			return getTargetGroupsWithExtension();
+		}
+		return buildManifest.getGroupsAffectedBy(uris);
+	}
+
+	private boolean isConfigurationFile(final File file) {
+		return wroConfigurationFile != null && file.equals(wroConfigurationFile.getAbsoluteFile());
+	}
+
+	private boolean isModelFile(final File file) {
+		// the model file may be autodetected using another extension
+		final File modelFile = wroFile.getAbsoluteFile();
+		return file.getParentFile().equals(modelFile.getParentFile())
+				&& FilenameUtils.getBaseName(file.getName()).equals(FilenameUtils.getBaseName(modelFile.getName()));
+	}
+
+	/**
+	 * @return the uri of the file relative to the context folder, or null if the
+	 *         file is outside of the context folder.
+	 */
+	private String toContextRelativeUri(final File file) {
+		final String contextPath = getContextFolder().getAbsoluteFile().toPath().normalize().toString();
+		final String path = file.getAbsoluteFile().toPath().normalize().toString();
+		if (!path.startsWith(contextPath + File.separator)) {
+			return null;
+		}
+		return path.substring(contextPath.length()).replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * @return a value which changes when any option affecting the result of
+	 *         processing changes.
+	 */
+	private String computeConfigurationFingerprint() throws IOException {
+		final Map<Object, Object> sortedProperties = new TreeMap<Object, Object>(getWroConfigurationProperties());
+		return HashUtils.sha256Hex(String.valueOf(preProcessorsList), String.valueOf(postProcessorsList),
+				String.valueOf(minimize), String.valueOf(ignoreMissingResources), String.valueOf(scssModules),
+				getContextFolder().getAbsolutePath(), sortedProperties.toString());
+	}
+
+	/**
+	 * @return the model, parsed once per run.
+	 */
+	private WroModel getModel() throws IOException {
+		getManagerFactory();
+		return modelFactory.create();
+	}
+
+	/**
+	 * @return the inputs recorded by the last build of the group, which include
+	 *         the imported resources, or else its declared resources.
+	 */
+	private List<String> getEstimatedResources(final String group) throws IOException {
+		final List<String> inputs = buildManifest == null ? null : buildManifest.getInputs(group);
+		return inputs != null ? inputs : getDeclaredResources(group);
+	}
+
+	/**
+	 * @param group the group name with extension.
+	 * @return the uri of the resources declared in the model for the group, or
+	 *         null if the group is not part of the model.
+	 */
+	private List<String> getDeclaredResources(final String group) throws IOException {
+		final String groupName = StringUtils.substringBeforeLast(group, ".");
+		final ResourceType resourceType = ResourceType.get(StringUtils.substringAfterLast(group, "."));
+		final Group modelGroup = new WroModelInspector(getModel()).getGroupByName(groupName);
+		if (modelGroup == null) {
+			return null;
+		}
+		final List<String> resources = new ArrayList<String>();
+		for (final Resource resource : modelGroup.getResources()) {
+			if (resource.getType() == resourceType) {
+				resources.add(resource.getUri());
+			}
+		}
+		return resources;
+	}
+
+	/**
+	 * Releases the resources held by processors shared during the run.
+	 */
+	private synchronized void destroyProcessors() {
+		destroyManagerFactory();
+		if (scssProcessor != null) {
+			try {
+				scssProcessor.destroy();
+			} catch (final Exception e) {
+				LOG.error("Problem while destroying " + RunnerSCSSProcessor.ALIAS + " processor", e);
+			}
+			scssProcessor = null;
+		}
+		if (parallelGzip != null) {
+			parallelGzip.destroy();
+			parallelGzip = null;
+		}
+		if (lintQueue != null) {
+			lintQueue.destroy();
+			lintQueue = null;
 		}
 	}
+
+	/**
+	 * The next call of {@link #getManagerFactory()} creates a new factory, with a
+	 * new model factory chain.
+	 */
+	private synchronized void destroyManagerFactory() {
+		if (managerFactory != null) {
+			try {
+				managerFactory.destroy();
+			} catch (final Exception e) {
+				LOG.error("Problem while destroying the manager factory", e);
+			}
+			managerFactory = null;
+		}
+	}
+
+	/**
+	 * Created with the processors, and again after they are destroyed by a
+	 * configuration change in watch mode.
+	 */
+	private synchronized LintQueue getLintQueue() {
+		if (lintQueue == null) {
+			lintQueue = new LintQueue(lintThreads);
+		}
+		return lintQueue;
+	}
+
+	private synchronized ParallelGzip getParallelGzip() {
+		if (parallelGzip == null) {
+			parallelGzip = new ParallelGzip(gzipLevel, Runtime.getRuntime().availableProcessors());
+		}
+		return parallelGzip;
+	}
 	
-	private void normalProcess() {
+	private void normalProcess(final Collection<String> groups) {
 		try {
 			Context.set(Context.standaloneContext());
 			// create destinationFolder if needed
 			if (!destinationFolder.exists()) {
 				destinationFolder.mkdirs();
 			}
-			final Collection<String> groupsAsList = getTargetGroupsAsList();
-			for (final String group : groupsAsList) {
-				for (final ResourceType resourceType : ResourceType.values()) {
-					final String groupWithExtension = group + "." + resourceType.name().toLowerCase();
-					processGroup(groupWithExtension, destinationFolder);
-				}
+			for (final String groupWithExtension : groups) {
+				processGroup(groupWithExtension, destinationFolder);
 			}
 		} catch (final IOException e) {
 			System.err.println(e.getMessage());
 		}
 	}
 
-	private void parallelProcess() {
-		int threadPoolSize = Runtime.getRuntime().availableProcessors() - 1;
-		final ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize == 0 ? 1 : threadPoolSize);
+	/**
+	 * Processes the groups using a work stealing pool. The groups which took
+	 * longest during the previous runs are started first, so that a big group
+	 * does not end up alone at the end of the run.
+	 * <p/>
+	 * Returns only once every scheduled group is done, even when some of them
+	 * failed, so that the shared processors are never destroyed under a running
+	 * group.
+	 *
+	 * @throws WroRuntimeException if any group failed.
+	 */
+	private void parallelProcess(final Collection<String> groups) {
+		final ExecutorService pool = newGroupExecutor();
+		final Map<String, Future<?>> futures = new LinkedHashMap<String, Future<?>>();
+		Exception schedulingFailure = null;
 		try {
 			Context.set(Context.standaloneContext());
 			// create destinationFolder if needed
 			if (!destinationFolder.exists()) {
 				destinationFolder.mkdirs();
 			}
-			final Collection<String> groupsAsList = getTargetGroupsAsList();
+			// create the shared manager before any worker uses it
+			getManagerFactory().create();
+			if (groupTimings == null) {
+				groupTimings = new GroupTimings(destinationFolder);
+			}
+			final List<String> scheduledGroups = groupTimings.sortByCost(groups);
+			LOG.debug("Scheduled groups: {}", scheduledGroups);
 
-			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (final String groupWithExtension : scheduledGroups) {
+				// admitted in the scheduled order, waiting for memory if needed
+				final long reservedBytes = memoryBudget == null ? 0
+						: memoryBudget.acquire(memoryBudget.estimate(getEstimatedResources(groupWithExtension)));
+				futures.put(groupWithExtension, pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						try {
+							processGroup(groupWithExtension, destinationFolder);
+							return null;
+						} finally {
+							if (memoryBudget != null) {
+								memoryBudget.release(reservedBytes);
+							}
+						}
+					}
+				}));
+			}
+		} catch (final IOException e) {
+			schedulingFailure = e;
+		} catch (final RuntimeException e) {
+			schedulingFailure = e;
+		}
+		int failures = 0;
+		try {
+			failures = awaitGroups(futures);
+		} finally {
+			awaitTermination(pool);
+			if (groupTimings != null) {
+				groupTimings.save();
+			}
+		}
+		if (schedulingFailure != null) {
+			throw new WroRuntimeException("Cannot schedule the groups: " + schedulingFailure.getMessage(),
+					schedulingFailure);
+		}
+		if (failures > 0) {
+			throw new WroRuntimeException(failures + " of " + futures.size() + " groups failed");
+		}
+	}
 
-			for (final String group : groupsAsList) {
-				for (final ResourceType resourceType : ResourceType.values()) {
+	/**
+	 * Waits for every group, logging the failed ones.
+	 *
+	 * @return the number of failed groups.
+	 */
+	private int awaitGroups(final Map<String, Future<?>> futures) {
+		int failures = 0;
+		for (final Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+			try {
+				entry.getValue().get();
+			} catch (final ExecutionException e) {
+				failures++;
+				System.err.println("Group " + entry.getKey() + " failed: " + e.getCause().getMessage());
+				LOG.debug("Group failed: " + entry.getKey(), e.getCause());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (final Future<?> future : futures.values()) {
+					future.cancel(true);
+				}
+				throw new WroRuntimeException("Interrupted while processing the groups", e);
+			}
+		}
+		return failures;
+	}
 
-					if (cssOnly && ResourceType.JS.name().equalsIgnoreCase(resourceType.name()))
-						continue;
+	private void awaitTermination(final ExecutorService pool) {
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.info("Waiting for the groups in progress");
+			}
+		} catch (final InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
 
-					final String groupWithExtension = group + "." + resourceType.name().toLowerCase();
-					Future<?> future = executor.submit(new Runnable() {
+	/**
+	 * @return an executor running each group on a virtual thread when requested
+	 *         and supported, otherwise a work stealing pool.
+	 */
+	private ExecutorService newGroupExecutor() {
+		if (virtualThreads) {
+			try {
+				// looked up by reflection to keep running on older JDKs
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (final Exception e) {
+				LOG.warn("Virtual threads require JDK 21 or later, using {} threads instead", threads);
+			}
+		}
+		return new ForkJoinPool(Math.max(1, threads), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
 
-						@Override
-						public void run() {
-							try {
-								processGroup(groupWithExtension, destinationFolder);
-							} catch (IOException e) {
-								System.err.println(e.getMessage());
-							}
-						}
-					});
-					futures.add(future);
-				}
+	/**
+	 * @return the groups which have at least one resource of their type in the
+	 *         model. Groups unknown to the model are kept, so that the problem
+	 *         is still reported while processing.
+	 */
+	private List<String> getNonEmptyGroups(final Collection<String> groups) throws IOException {
+		final List<String> nonEmptyGroups = new ArrayList<String>();
+		for (final String group : groups) {
+			final List<String> resources = getDeclaredResources(group);
+			if (resources == null || !resources.isEmpty()) {
+				nonEmptyGroups.add(group);
+			} else {
+				LOG.debug("Skipping group without resources: {}", group);
 			}
-			for (Future<?> future : futures) {
-				future.get();
+		}
+		return nonEmptyGroups;
+	}
+
+	/**
+	 * @return the names, with extension, of the group and resource type pairs to
+	 *         process: the pairs without resources in the model are left out, so
+	 *         that no processing chain is set up only to produce an empty file.
+	 */
+	private List<String> getTargetGroupsWithExtension() throws IOException {
+		Context.set(Context.standaloneContext());
+		final List<String> groups = new ArrayList<String>();
+		for (final String group : getTargetGroupsAsList()) {
+			for (final ResourceType resourceType : ResourceType.values()) {
+				if (parallelGroupprocessing && cssOnly && ResourceType.JS.name().equalsIgnoreCase(resourceType.name()))
+					continue;
+
+				groups.add(group + "." + resourceType.name().toLowerCase());
 			}
-		} catch (final IOException e) {
-			System.err.println(e.getMessage());
-		} catch (InterruptedException e) {
-			System.err.println(e.getMessage());
-		} catch (ExecutionException e) {
-			System.err.println(e.getMessage());
-		} finally {
-			executor.shutdown();
 		}
+		return getNonEmptyGroups(groups);
 	}
 
 	/**
@@ -256,8 +779,7 @@ public class Wro4jCommandLineRunner {
 	 */
 	private List<String> getTargetGroupsAsList() throws IOException {
 		if (targetGroups == null) {
-			final WroModel model = getManagerFactory().create().getModelFactory().create();
-			return new WroModelInspector(model).getGroupNames();
+			return new WroModelInspector(getModel()).getGroupNames();
 		}
 		return Arrays.asList(targetGroups.split(","));
 	}
@@ -268,56 +790,95 @@ public class Wro4jCommandLineRunner {
 	 * @throws IOException if any IO related exception occurs.
 	 */
 	private void processGroup(final String group, final File parentFoder) throws IOException {
-		final ByteArrayOutputStream resultOutputStream = new ByteArrayOutputStream();
-		InputStream resultInputStream = null;
+		final List<String> declaredResources = buildManifest == null ? null : getDeclaredResources(group);
+		final boolean tracked = declaredResources != null;
+		if (tracked && buildManifest.isUpToDate(group, declaredResources)) {
+			LOG.info("group is up to date: " + group);
+			return;
+		}
+		final long start = System.currentTimeMillis();
+		final GroupOutputStream resultOutputStream = new GroupOutputStream(parentFoder.toPath());
+		boolean processed = false;
+		Set<String> imports = Collections.emptySet();
+		ProcessingReport.Entry reportEntry = null;
 		try {
 			LOG.info("processing group: " + group);
 			initContext(group, resultOutputStream);
-			doProcess();
-
-			// encode version & write result to file
-			resultInputStream = new UnclosableBufferedInputStream(resultOutputStream.toByteArray());
-			final File destinationFile = new File(parentFoder, rename(group, resultInputStream));
-			destinationFile.createNewFile();
-			// allow the same stream to be read again
-			resultInputStream.reset();
-			LOG.debug("Created file: {}", destinationFile.getName());
-
-			final OutputStream fos = new FileOutputStream(destinationFile);
-			// use reader to detect encoding
-			IOUtils.copy(resultInputStream, fos);
-			fos.close();
+			if (report != null) {
+				reportEntry = report.startGroup(group);
+			}
+			dependencyCollector.start();
+			try {
+				doProcess();
+			} finally {
+				imports = dependencyCollector.finish();
+			}
+			resultOutputStream.close();
+
+			// the hash encoders get the digest computed while writing, the file is
+			// read again only by a naming strategy reading the content itself
+			final InputStream resultInputStream = resultOutputStream.newInputStream();
+			final String destinationName;
+			try {
+				destinationName = rename(group, resultInputStream);
+			} finally {
+				resultInputStream.close();
+			}
+			final File destinationFile = new File(parentFoder, destinationName);
 			// delete empty files
-			if (destinationFile.length() == 0) {
+			if (resultOutputStream.getSize() == 0) {
 				LOG.debug("No content found for group: {}", group);
-				destinationFile.delete();
+				if (Files.deleteIfExists(destinationFile.toPath())) {
+					outputStats.deleted();
+				}
+				if (gzip) {
+					Files.deleteIfExists(ParallelGzip.getSibling(destinationFile.toPath()));
+				}
+			} else if (resultOutputStream.hasSameContent(destinationFile.toPath())) {
+				// keep the existing file and its modification time
+				outputStats.unchanged();
+				LOG.info("{} is unchanged", destinationFile.getAbsolutePath());
+				if (gzip && !Files.exists(ParallelGzip.getSibling(destinationFile.toPath()))) {
+					getParallelGzip().compress(destinationFile.toPath());
+				}
 			} else {
-				LOG.info("file size: {} -> {}bytes", destinationFile.getName(), destinationFile.length());
-				LOG.info("{} ({}bytes) has been created!", destinationFile.getAbsolutePath(), destinationFile.length());
+				destinationFile.getParentFile().mkdirs();
+				resultOutputStream.moveTo(destinationFile.toPath());
+				outputStats.written();
+				if (gzip) {
+					getParallelGzip().compress(destinationFile.toPath());
+				}
+				LOG.debug("Created file: {} (sha1: {})", destinationFile.getName(), resultOutputStream.getHash());
+				LOG.info("file size: {} -> {}bytes", destinationFile.getName(), resultOutputStream.getSize());
+				LOG.info("{} ({}bytes) has been created!", destinationFile.getAbsolutePath(), resultOutputStream.getSize());
+			}
+			if (tracked) {
+				buildManifest.update(group, declaredResources, imports,
+						destinationFile.exists() ? destinationName : StringUtils.EMPTY);
+			}
+			processed = true;
+			if (groupTimings != null) {
+				groupTimings.record(group, System.currentTimeMillis() - start);
 			}
 		} finally {
-			if (resultOutputStream != null) {
-				resultOutputStream.close();
+			if (tracked && !processed) {
+				buildManifest.markFailed(group, declaredResources, imports);
 			}
-			if (resultInputStream != null) {
-				resultInputStream.close();
+			if (reportEntry != null) {
+				report.finishGroup(reportEntry, resultOutputStream.getSize(), !processed);
 			}
+			resultOutputStream.discard();
 		}
 	}
 
 	/**
 	 * Initialize the context for standalone execution.
 	 */
-	private void initContext(final String group, final ByteArrayOutputStream resultOutputStream) throws IOException {
-		// mock request
-		final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
-		Mockito.when(request.getRequestURI()).thenReturn(group);
-		// mock response
-		final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
-		Mockito.when(response.getOutputStream()).thenReturn(new DelegatingServletOutputStream(resultOutputStream));
-
+	private void initContext(final String group, final OutputStream resultOutputStream) throws IOException {
 		// init context
-		Context.set(Context.webContext(request, response, Mockito.mock(FilterConfig.class)), initWroConfiguration());
+		Context.set(Context.webContext(StandaloneServletObjects.newRequest(group),
+				StandaloneServletObjects.newResponse(resultOutputStream), StandaloneServletObjects.getFilterConfig()),
+				getWroConfiguration());
 		Context.get().setAggregatedFolderPath(computeAggregatedFolderPath());
 	}
 
@@ -333,6 +894,16 @@ public class Wro4jCommandLineRunner {
 		getManagerFactory().create().process();
 	}
 
+	/**
+	 * @return the configuration shared by all groups of the run.
+	 */
+	private synchronized WroConfiguration getWroConfiguration() throws IOException {
+		if (wroConfiguration == null) {
+			wroConfiguration = initWroConfiguration();
+		}
+		return wroConfiguration;
+	}
+
 	private WroConfiguration initWroConfiguration() throws IOException {
 		final PropertyWroConfigurationFactory factory = new PropertyWroConfigurationFactory(
 				getWroConfigurationProperties());
@@ -402,16 +973,44 @@ public class Wro4jCommandLineRunner {
 
 	/**
 	 * This method will ensure that you have a right and initialized instance of
-	 * {@link StandaloneContextAware}.
+	 * {@link StandaloneContextAware}. The factory, its model and its processors
+	 * are created once per run and shared by all groups and threads.
 	 */
 	private WroManagerFactory getManagerFactory() throws IOException {
-		final DefaultStandaloneContextAwareManagerFactory managerFactory = new DefaultStandaloneContextAwareManagerFactory();
-		managerFactory.setProcessorsFactory(createProcessorsFactory());
-		managerFactory.setNamingStrategy(createNamingStrategy());
-		managerFactory.setModelFactory(createWroModelFactory());
-		managerFactory.initialize(createStandaloneContext());
-		// allow created manager to get injected immediately after creation
-		return managerFactory;
+		WroManagerFactory result = managerFactory;
+		if (result == null) {
+			synchronized (this) {
+				result = managerFactory;
+				if (result == null) {
+					final DefaultStandaloneContextAwareManagerFactory factory = new DefaultStandaloneContextAwareManagerFactory() {
+						@Override
+						protected UriLocatorFactory newUriLocatorFactory() {
+							final UriLocatorFactory locatorFactory = super.newUriLocatorFactory();
+							if (resourceCacheSize <= 0) {
+								return locatorFactory;
+							}
+							// files are read once per run, even if shared by several groups; the
+							// watched files are not mapped, so that they can still be saved
+							uriLocatorFactory = new CachingUriLocatorFactory(locatorFactory, getContextFolder(),
+									resourceCacheSize, !watch);
+							return uriLocatorFactory;
+						}
+					};
+					factory.setProcessorsFactory(createProcessorsFactory());
+					factory.setNamingStrategy(createNamingStrategy());
+					factory.setHashStrategy(new InlineDigestHashStrategy());
+					modelFactory = new CachingWroModelFactory(createWroModelFactory(),
+							noModelCache ? null : new ModelCache(destinationFolder, getModelFiles()));
+					factory.setModelFactory(modelFactory);
+					// every group is processed once, there is nothing to gain from caching it
+					factory.setCacheStrategy(new NoOpCacheStrategy());
+					factory.initialize(createStandaloneContext());
+					result = factory;
+					managerFactory = result;
+				}
+			}
+		}
+		return result;
 	}
 
 	private NamingStrategy createNamingStrategy() throws IOException {
@@ -428,6 +1027,21 @@ public class Wro4jCommandLineRunner {
 		return new SmartWroModelFactory().setWroFile(wroFile).setAutoDetectWroFile(autoDetectWroFile);
 	}
 
+	/**
+	 * @return the files the model may be created from.
+	 */
+	private List<File> getModelFiles() {
+		final boolean autoDetectWroFile = defaultWroFile.getPath().equals(wroFile.getPath());
+		if (!autoDetectWroFile) {
+			return Collections.singletonList(wroFile);
+		}
+		final List<File> files = new ArrayList<File>();
+		for (final String name : MODEL_FILE_NAMES) {
+			files.add(new File(wroFile.getAbsoluteFile().getParentFile(), name));
+		}
+		return files;
+	}
+
 	private ProcessorsFactory createProcessorsFactory() throws IOException {
 		final Properties props = getWroConfigurationProperties();
 		if (preProcessorsList != null) {
@@ -443,6 +1057,14 @@ public class Wro4jCommandLineRunner {
 				// override csslint & jsHint aliases
 				map.put(CssLintProcessor.ALIAS, new RunnerCssLintProcessor());
 				map.put(JsHintProcessor.ALIAS, new RunnerJsHintProcessor());
+				// report the imports of each group to the dependency collector
+				map.put(RunnerCSSImportProcessor.ALIAS, dependencyCollector.newImportProcessor());
+				if (scssModules) {
+					map.put(RunnerSCSSProcessor.ALIAS, getScssProcessor());
+				}
+				for (final Map.Entry<String, ResourcePreProcessor> entry : map.entrySet()) {
+					entry.setValue(decorateProcessor(entry.getKey(), entry.getValue()));
+				}
 				return map;
 			}
 
@@ -452,11 +1074,50 @@ public class Wro4jCommandLineRunner {
 				// override csslint & jsHint aliases
 				map.put(CssLintProcessor.ALIAS, new RunnerCssLintProcessor());
 				map.put(JsHintProcessor.ALIAS, new RunnerJsHintProcessor());
+				map.put(RunnerSCSSProcessor.ALIAS, getScssProcessor());
+				for (final Map.Entry<String, ResourcePostProcessor> entry : map.entrySet()) {
+					entry.setValue(decorateProcessor(entry.getKey(), entry.getValue()));
+				}
 				return map;
 			}
 		}.setProperties(props);
 	}
 
+	/**
+	 * Adds the deferred linting, the timing and the CPU limiting behaviour
+	 * requested by the options.
+	 *
+	 * @return the processor itself or a {@link ProcessorDecorator}, which is
+	 *         both a pre and a post processor.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T decorateProcessor(final String alias, final T processor) {
+		Object decorated = processor;
+		final boolean deferredLint = parallelLint && LintQueue.isLinter(alias);
+		if (deferredLint) {
+			decorated = new DeferredLintProcessor(LintQueue.newLinter(alias), alias, getLintQueue());
+		}
+		if (report != null) {
+			decorated = new TimedProcessor(decorated, alias, report);
+		}
+		if (virtualThreads && !deferredLint && CpuBoundProcessor.isCpuBound(alias, processor)) {
+			decorated = new CpuBoundProcessor(decorated, cpuPermits);
+		}
+		return (T) decorated;
+	}
+
+	private synchronized RunnerSCSSProcessor getScssProcessor() {
+		if (scssProcessor == null) {
+			scssProcessor = new RunnerSCSSProcessor() {
+				@Override
+				protected void onImportDetected(final String foundImportUri) {
+					dependencyCollector.onImport(foundImportUri);
+				}
+			}.setPoolSize(scssPoolSize).setCacheFolder(scssCacheFolder).setModules(scssModules);
+		}
+		return scssProcessor;
+	}
+
 	/**
 	 * Creates a {@link StandaloneContext} by setting properties passed after mojo
 	 * is initialized.
@@ -5,13 +5,13 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
@@ -33,6 +33,10 @@ import ro.isdc.wro.model.resource.processor.ResourcePreProcessor;
 import ro.isdc.wro.model.resource.processor.support.CssImportInspector;
 import ro.isdc.wro.model.resource.processor.support.ProcessingCriteria;
 import ro.isdc.wro.model.resource.processor.support.ProcessingType;
+import ro.isdc.wro.runner.processor.css.ScssUseRewriter;
+import ro.isdc.wro.runner.support.CachingUriLocatorFactory;
+import ro.isdc.wro.runner.support.HashUtils;
+import ro.isdc.wro.util.AbstractDecorator;
 import ro.isdc.wro.util.StringUtils;
 import ro.isdc.wro.util.WroUtil;
 
@@ -44,11 +48,6 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 	@Inject
 	private PreProcessorExecutor preProcessorExecutor;
 
-	private static final Pattern RULE_PATTERN_TOREMOVE_WITH_NAMESPACE_USE = Pattern.compile("(@use '([a-zA-Z0-9_/..]+)(.*\\s)(\\w+);)");
-	private static final Pattern RULE_PATTERN_TOREMOVE_WITHOUT_NAMESPACE_USE = Pattern.compile("(@use '([a-zA-Z0-9_/..]+)(.*\\sas.*\\*);)");
-	private static final Pattern RULE_PATTERN_TOREMOVE_USE = Pattern.compile("(@use '([a-zA-Z0-9\\-_/..]+)';)");
-	private static final Pattern RULE_PATTERN_FIRST_RULE = Pattern.compile("((@use|@import).*;)");
-
 	@Inject
 	private UriLocatorFactory uriLocatorFactory;
 	/**
@@ -77,6 +76,20 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 		};
 	};
 
+	/**
+	 * Processed content of the imported resources, shared by all the groups of a
+	 * run so that a partial imported by many groups is processed once. Only the
+	 * latest version of each import is kept, keyed by its uri: the versions it
+	 * was processed from are checked on lookup, so the cache does not grow with
+	 * every save in watch mode.
+	 */
+	private final Map<String, ProcessedImport> processedImportCache = new ConcurrentHashMap<String, ProcessedImport>();
+	/**
+	 * Versions of the imports and number of skipped imports of each processing
+	 * unit, cleared together with the {@link #contextMap} entry.
+	 */
+	private final Map<String, ImportState> importStateMap = new ConcurrentHashMap<String, ImportState>();
+
 	/**
 	 * Useful to check that there is no memory leak after processing completion.
 	 * 
@@ -116,37 +129,18 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 	 */
 	private String parseCss(final Resource resource, final String cssContent) throws IOException {
 		//LOG.info("import phase parsing \n {}", cssContent);
-		List<String> removeVars = new ArrayList<String>();
-
-		// fix imports
-		// Process @use 'newsletter' as news
-		Matcher mWithNamespace = RULE_PATTERN_TOREMOVE_WITH_NAMESPACE_USE.matcher(cssContent);
-		while(mWithNamespace.find()) {
-			removeVars.add(mWithNamespace.group(4));
-		}
-		String out = mWithNamespace.replaceAll("@import '$2.scss';");
-		
-		if(!removeVars.isEmpty()) {
-			for (String remove : removeVars) {
-				out = out.replaceAll(remove+"\\.(?!sass|scss)", "");
-			}
-		}
-		
-		// Process @use '_mobile' as *
-		Matcher mWithoutNamespaceUse = RULE_PATTERN_TOREMOVE_WITHOUT_NAMESPACE_USE.matcher(out);
-		out = mWithoutNamespaceUse.replaceAll("@import '$2.scss';");
-		
-		// Process @use 'newsletter'
-		Matcher mUse = RULE_PATTERN_TOREMOVE_USE.matcher(out);
-		out = mUse.replaceAll("@import '$2.scss';");
-				
 		if (isImportProcessed(resource.getUri())) {
 			LOG.debug("[WARN] Recursive import detected: {}", resource);
 			onRecursiveImportDetected();
+			getImportState().skipped++;
+			// balance the pop done when the processing completes
+			contextMap.get(Context.getCorrelationId()).getValue().push(resource.getUri());
 			return "";
 		}
 		final String importedUri = resource.getUri().replace(File.separatorChar, '/');
 		addProcessedImport(importedUri);
+		// turn @use rules into imports and drop the namespaces of used members
+		final String out = ScssUseRewriter.rewrite(cssContent);
 		final List<Resource> importedResources = findImportedResources(resource.getUri(), out);
 		LOG.debug("import phase, imported resources \n {}", importedResources);
 		return doTransform(out, importedResources);
@@ -155,8 +149,13 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 	protected String doTransform(final String cssContent, final List<Resource> foundImports) throws IOException {
 		final StringBuilder sb = new StringBuilder();
 		//LOG.info("Imported resources found " + foundImports.toString());
-		sb.append(preProcessorExecutor.processAndMerge(foundImports,
-				ProcessingCriteria.create(ProcessingType.IMPORT_ONLY, false)));
+		for (final Resource importedResource : foundImports) {
+			if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+				// a trailing line comment must not swallow the next import
+				sb.append('\n');
+			}
+			sb.append(processImport(importedResource));
+		}
 		if (!foundImports.isEmpty()) {
 			LOG.debug("Imported resources found : {}", foundImports.size());
 		}
@@ -165,73 +164,108 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 		return removeImportStatements(sb.toString());
 	}
 	
-	public static void main(String[] args) {
-		List<String> removeVars = new ArrayList<String>();
-		LinkedList<String> rulesFirst = new LinkedList<String>();
-		Matcher m = RULE_PATTERN_TOREMOVE_WITH_NAMESPACE_USE.matcher(
-				  "@use 'variables' as var;\r\n"
-				+ "@use 'functions' as fnc;\n"
-				+ "@use 'footer/_newsletter' as news;\r\n"
-				+ "@use 'footer/_main' as main;"
-
-				+ ".header__top {\r\n"
-				+ "        display: flex;\r\n"
-				+ "        width: 100%;\r\n"
-				+ "        height: 40px;\r\n"
-				+ "        @include fnc.border-color(rgba(var.$color-black, 5%), bottom);\r\n"
-				+ "        order: 2;\r\n"
-				+ "        position: relative;\r\n"
-				+ "        top: 70px;\r\n"
-				+ "    }"
-				+ "@use 'sass:math';\r\n"
-				+ "@use '_mobile' as *;\r\n"
-				+ "@use 'footer/_justimport';\r\n");
-		
-		while(m.find()) {
-			removeVars.add(m.group(4));
+	/**
+	 * Processes an imported resource, reusing the content processed for another
+	 * group when the resource and all the resources it imports are unchanged
+	 * and none of them was already imported by the current processing unit.
+	 */
+	private String processImport(final Resource resource) throws IOException {
+		final String uri = resource.getUri();
+		final String version = Context.get().getConfig().isParallelPreprocessing() ? null : getVersion(uri);
+		if (version == null) {
+			return processAndMerge(resource);
+		}
+		final ImportState state = getImportState();
+		state.versions.put(uri, version);
+		final ProcessedImport cached = processedImportCache.get(uri);
+		if (cached != null && isReusable(cached, state)) {
+			LOG.debug("Reusing processed import: {}", uri);
+			for (final String processedUri : cached.inputs.keySet()) {
+				getProcessedImports().add(processedUri);
+				if (!processedUri.equals(uri)) {
+					onImportDetected(processedUri);
+				}
+			}
+			return cached.content;
 		}
-		String out = m.replaceAll("@import '$2.scss';");
-		System.out.println(out);
-		System.out.println("--- before remove module ----");
-		
-		
-		if(!removeVars.isEmpty()) {
-			for (String remove : removeVars) {
-				//out = out.replace((remove+"."),"");
-				System.out.println("removing" + remove);
-				out = out.replaceAll(remove+"\\.(?!sass|scss)", "");
+		final List<String> processedImports = getProcessedImports();
+		final int start = processedImports.size();
+		final int skipped = state.skipped;
+		final String content = processAndMerge(resource);
+		// cache only content which does not depend on what the unit imported before
+		if (processedImports == getProcessedImports() && state == getImportState() && state.skipped == skipped
+				&& processedImports.size() > start && processedImports.get(start).equals(uri)) {
+			final Map<String, String> inputs = new LinkedHashMap<String, String>();
+			for (final String processedUri : processedImports.subList(start, processedImports.size())) {
+				final String processedVersion = state.versions.get(processedUri);
+				if (processedVersion == null) {
+					return content;
+				}
+				inputs.put(processedUri, processedVersion);
 			}
+			processedImportCache.put(uri, new ProcessedImport(content, inputs));
 		}
-		
-		Matcher mWithoutUse = RULE_PATTERN_TOREMOVE_WITHOUT_NAMESPACE_USE.matcher(out);
-		while(mWithoutUse.find()) {
-			System.out.println(mWithoutUse.group(0));
-			System.out.println(mWithoutUse.group(1));
-			System.out.println(mWithoutUse.group(2));
+		return content;
+	}
+
+	private String processAndMerge(final Resource resource) throws IOException {
+		return preProcessorExecutor.processAndMerge(Collections.singletonList(resource),
+				ProcessingCriteria.create(ProcessingType.IMPORT_ONLY, false));
+	}
+
+	private boolean isReusable(final ProcessedImport cached, final ImportState state) throws IOException {
+		final List<String> processedImports = getProcessedImports();
+		for (final Map.Entry<String, String> input : cached.inputs.entrySet()) {
+			if (processedImports.contains(input.getKey())) {
+				return false;
+			}
+			String version = state.versions.get(input.getKey());
+			if (version == null) {
+				version = getVersion(input.getKey());
+				if (version == null) {
+					return false;
+				}
+				state.versions.put(input.getKey(), version);
+			}
+			if (!version.equals(input.getValue())) {
+				return false;
+			}
 		}
-		out = mWithoutUse.replaceAll("@import '$2.scss';");
-		System.out.println(out);
-		
-		System.out.println("removingnamesspace\n");
-		
-		Matcher mUse = RULE_PATTERN_TOREMOVE_USE.matcher(out);
-		out = mUse.replaceAll("@import '$2.scss';");
-		
-		//fix rules and import need to be first
-		Matcher mFirstRule = RULE_PATTERN_FIRST_RULE.matcher(out);
-		while(mFirstRule.find()) {
-			rulesFirst.add(mFirstRule.group(0));
+		return true;
+	}
+
+	/**
+	 * Context folder files are versioned by the resource cache from their path,
+	 * size and modification time, without being read. Any other resource is
+	 * versioned by the hash of its content.
+	 *
+	 * @return the version of the resource content or null if it cannot be
+	 *         located.
+	 */
+	private String getVersion(final String uri) {
+		try {
+			final UriLocatorFactory factory = AbstractDecorator.getOriginalDecoratedObject(uriLocatorFactory);
+			if (factory instanceof CachingUriLocatorFactory) {
+				final String version = ((CachingUriLocatorFactory) factory).getVersion(uri);
+				if (version != null) {
+					return version;
+				}
+			}
+			return HashUtils.hashStream(uriLocatorFactory.locate(uri), HashUtils.SHA_1);
+		} catch (final IOException e) {
+			LOG.debug("Cannot version import: {}", uri, e);
+			return null;
 		}
-		
-		out = mFirstRule.replaceAll("");
-		
-		StringBuilder builder = new StringBuilder();
-		for (String value : rulesFirst) {
-		    builder.append(value).append(System.lineSeparator());
+	}
+
+	private ImportState getImportState() {
+		final String correlationId = Context.getCorrelationId();
+		ImportState state = importStateMap.get(correlationId);
+		if (state == null) {
+			state = new ImportState();
+			importStateMap.put(correlationId, state);
 		}
-		String allUseImports = builder.toString();
-		out = allUseImports + out;
-		System.out.println(out);
+		return state;
 	}
 
 	private boolean isImportProcessed(final String uri) {
@@ -256,6 +290,7 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 		}
 		if (stack.isEmpty()) {
 			contextMap.remove(correlationId);
+			importStateMap.remove(correlationId);
 		}
 	}
 
@@ -313,4 +348,22 @@ public class RunnerCSSImportProcessor implements ResourcePreProcessor, ImportAwa
 	protected void onRecursiveImportDetected() {
 	}
 
+	private static class ProcessedImport {
+		private final String content;
+		/**
+		 * Version of the imported resource and of every resource it imports.
+		 */
+		private final Map<String, String> inputs;
+
+		ProcessedImport(final String content, final Map<String, String> inputs) {
+			this.content = content;
+			this.inputs = inputs;
+		}
+	}
+
+	private static class ImportState {
+		private final Map<String, String> versions = new HashMap<String, String>();
+		private int skipped;
+	}
+
 }
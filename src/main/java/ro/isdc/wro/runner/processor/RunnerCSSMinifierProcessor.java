@@ -0,0 +1,41 @@
+package ro.isdc.wro.runner.processor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import ro.isdc.wro.model.group.processor.Minimize;
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.ResourceType;
+import ro.isdc.wro.model.resource.SupportedResourceType;
+import ro.isdc.wro.model.resource.processor.ResourcePostProcessor;
+import ro.isdc.wro.model.resource.processor.ResourcePreProcessor;
+import ro.isdc.wro.runner.processor.css.CssMinifier;
+
+/**
+ * Single pass CSS minifier, a faster alternative to
+ * {@link RunnerCSSCompressorProcessor}. See {@link CssMinifier} for the applied
+ * optimizations.
+ *
+ * @author Ricardo Nunes
+ */
+@Minimize
+@SupportedResourceType(ResourceType.CSS)
+public class RunnerCSSMinifierProcessor implements ResourcePreProcessor, ResourcePostProcessor {
+	public static final String ALIAS = "cssMinifier";
+
+	@Override
+	public void process(final Resource resource, final Reader reader, final Writer writer) throws IOException {
+		try {
+			CssMinifier.minify(reader, writer);
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	@Override
+	public void process(final Reader reader, final Writer writer) throws IOException {
+		process(null, reader, writer);
+	}
+}
@@ -1,5 +1,6 @@
 package ro.isdc.wro.runner.processor;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
@@ -11,19 +12,24 @@ import javax.swing.text.html.CSS;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ro.isdc.wro.WroRuntimeException;
-import ro.isdc.wro.extensions.processor.support.ObjectPoolHelper;
+import ro.isdc.wro.model.group.Inject;
 import ro.isdc.wro.model.resource.Resource;
 import ro.isdc.wro.model.resource.ResourceType;
 import ro.isdc.wro.model.resource.SupportedResourceType;
+import ro.isdc.wro.model.resource.locator.factory.UriLocatorFactory;
 import ro.isdc.wro.model.resource.processor.Destroyable;
 import ro.isdc.wro.model.resource.processor.ResourcePostProcessor;
 import ro.isdc.wro.model.resource.processor.ResourcePreProcessor;
+import ro.isdc.wro.runner.processor.css.SassCompilerPool;
+import ro.isdc.wro.runner.processor.css.SassContentCompiler;
+import ro.isdc.wro.runner.processor.css.ScssCompileCache;
 import ro.isdc.wro.runner.processor.css.ScssEngine;
-import ro.isdc.wro.util.ObjectFactory;
+import ro.isdc.wro.runner.processor.css.WroModuleImporter;
 
 /**
  * Custom extension of {@link CSS SCSS} created for wro4j-runner.
@@ -40,29 +46,73 @@ public class RunnerSCSSProcessor implements ResourcePreProcessor, ResourcePostPr
 	private static final Pattern RULE_PATTERN_FIRST_RULE = Pattern.compile("((@use|@import).*;)");
 
 
-	private final ObjectPoolHelper<ScssEngine> enginePool;
+	private int poolSize = SassCompilerPool.DEFAULT_POOL_SIZE;
+	/**
+	 * Shared by all threads, created lazily and kept alive until
+	 * {@link #destroy()} is invoked.
+	 */
+	private volatile ScssEngine engine;
+	private File cacheFolder;
+	private volatile ScssCompileCache cache;
+	private boolean modules;
+	@Inject
+	private UriLocatorFactory uriLocatorFactory;
+	private WroModuleImporter moduleImporter;
 
-	public RunnerSCSSProcessor() {
-		enginePool = new ObjectPoolHelper<ScssEngine>(new ObjectFactory<ScssEngine>() {
-			@Override
-			public ScssEngine create() {
-				return new ScssEngine();
-			}
-		});
+	/**
+	 * @param poolSize the number of embedded Sass processes kept alive.
+	 */
+	public RunnerSCSSProcessor setPoolSize(final int poolSize) {
+		Validate.isTrue(poolSize > 0, "Pool size must be positive, but was: %s", poolSize);
+		this.poolSize = poolSize;
+		return this;
+	}
+
+	/**
+	 * @param cacheFolder folder where compiled content is stored between runs,
+	 *                    when null only the in memory cache is used.
+	 */
+	public RunnerSCSSProcessor setCacheFolder(final File cacheFolder) {
+		this.cacheFolder = cacheFolder;
+		return this;
+	}
+
+	/**
+	 * @param modules when true, resources processed by this processor as a pre
+	 *                processor are compiled by Sass loading their modules
+	 *                through the wro4j locators, instead of compiling the content
+	 *                flattened by {@link RunnerCSSImportProcessor}.
+	 */
+	public RunnerSCSSProcessor setModules(final boolean modules) {
+		this.modules = modules;
+		return this;
 	}
 
 	@Override
 	public void process(final Resource resource, final Reader reader, final Writer writer) throws IOException, WroRuntimeException {
 		String content = IOUtils.toString(reader);
-		final ScssEngine engine = enginePool.getObject();
 		try {
 			final String filename = resource == null ? "noName" : resource.getUri();
 			LOG.debug("processing filename: " + filename);
+
+			if (modules && resource != null && resource.getUri().startsWith("/")) {
+				writer.write(compileModule(resource.getUri(), content));
+				return;
+			}
 			
 			content = rulesFirst(content);
 			
 			//LOG.info("processing content: \n" + content);
-			writer.write(engine.process(filename, content));
+			final ScssCompileCache compileCache = getCache();
+			final String key = ScssCompileCache.key(content, SassContentCompiler.getFingerprint());
+			String css = compileCache.get(key);
+			if (css == null) {
+				css = getEngine().process(filename, content);
+				compileCache.put(key, css);
+			} else {
+				LOG.debug("compile cache hit: " + filename);
+			}
+			writer.write(css);
 		} catch (final WroRuntimeException e) {
 			final String resourceUri = resource == null ? StringUtils.EMPTY : "[" + resource.getUri() + "]";
 			LOG.warn("Exception while applying " + getClass().getSimpleName() + " processor on the " + resourceUri
@@ -71,10 +121,53 @@ public class RunnerSCSSProcessor implements ResourcePreProcessor, ResourcePostPr
 		} finally {
 			reader.close();
 			writer.close();
-			enginePool.returnObject(engine);
 		}
 	}
 
+	/**
+	 * Compiles the resource letting Sass load its modules. The result depends on
+	 * every loaded module, so it is not cached.
+	 */
+	private String compileModule(final String uri, final String content) {
+		final ScssEngine scssEngine = getEngine();
+		final WroModuleImporter.Compilation compilation = moduleImporter.start(uri, content);
+		try {
+			final String css = scssEngine.processModule(compilation.getEntryUrl());
+			for (final String loadedUri : compilation.getLoadedUris()) {
+				onImportDetected(loadedUri);
+			}
+			return css;
+		} finally {
+			moduleImporter.finish(compilation);
+		}
+	}
+
+	private ScssEngine getEngine() {
+		if (engine == null) {
+			synchronized (this) {
+				if (engine == null) {
+					if (modules) {
+						Validate.notNull(uriLocatorFactory, "Sass modules require an injected UriLocatorFactory");
+						moduleImporter = new WroModuleImporter(uriLocatorFactory);
+					}
+					engine = new ScssEngine(poolSize, moduleImporter);
+				}
+			}
+		}
+		return engine;
+	}
+
+	private ScssCompileCache getCache() {
+		if (cache == null) {
+			synchronized (this) {
+				if (cache == null) {
+					cache = new ScssCompileCache(cacheFolder);
+				}
+			}
+		}
+		return cache;
+	}
+
 	private String rulesFirst(String content) {
 		LinkedHashSet<String> rulesFirst = new LinkedHashSet<String>();
 		Matcher mrule = RULE_PATTERN_FIRST_RULE.matcher(content);
@@ -95,12 +188,26 @@ public class RunnerSCSSProcessor implements ResourcePreProcessor, ResourcePostPr
 	}
 
 	@Override
-	public void destroy() throws Exception {
-		enginePool.destroy();
+	public synchronized void destroy() throws Exception {
+		if (cache != null) {
+			cache.logStatistics();
+			cache = null;
+		}
+		if (engine != null) {
+			engine.destroy();
+			engine = null;
+		}
+		moduleImporter = null;
 	}
 
 	protected void onException(final WroRuntimeException e) {
 		throw e;
 	}
 
+	/**
+	 * Invoked for every module loaded by Sass when compiling with modules.
+	 */
+	protected void onImportDetected(final String foundImportUri) {
+	}
+
 }
@@ -0,0 +1,625 @@
+package ro.isdc.wro.runner.processor.css;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minifies a stylesheet in a single pass while it is read. Only the prelude and
+ * the declarations of the rule being read are held in memory, at-rules
+ * wrapping rules are written as soon as their first non empty rule is found.
+ * <p/>
+ * The minifier removes comments (except {@code /*!} ones) and whitespace, the
+ * last semicolon of a rule, empty rules, adjacent duplicate declarations and
+ * all but the first {@code @charset}. In values it lowercases {@code #AABBCC}
+ * colors and shortens them to {@code #abc}, zero lengths to {@code 0},
+ * {@code 0.5} to {@code .5}, {@code 0 0 0 0} margins and paddings to {@code 0}
+ * and {@code none} borders, outlines and backgrounds to {@code 0}, like the YUI
+ * compressor does. Selectors, strings, urls and custom properties are never
+ * rewritten, nor are units inside {@code calc()}.
+ *
+ * @author Ricardo Nunes
+ */
+public class CssMinifier {
+	private static final int EOF = -1;
+	private static final Collection<String> NESTED_RULES_AT_RULES = Arrays.asList("media", "supports", "document",
+			"-moz-document", "container", "layer", "keyframes", "-webkit-keyframes", "-moz-keyframes", "-o-keyframes");
+	private static final Collection<String> LENGTH_UNITS = Arrays.asList("px", "em", "rem", "ex", "ch", "vw", "vh",
+			"vmin", "vmax", "cm", "mm", "in", "pt", "pc", "q");
+	private static final Collection<String> MATH_FUNCTIONS = Arrays.asList("calc", "-webkit-calc", "-moz-calc", "min",
+			"max", "clamp");
+	private static final Collection<String> ZERO_SHORTHANDS = Arrays.asList("margin", "padding");
+	private static final Collection<String> FILTER_PROPERTIES = Arrays.asList("filter", "-ms-filter");
+	private static final Collection<String> NONE_SHORTHANDS = Arrays.asList("border", "border-top", "border-right",
+			"border-bottom", "border-left", "outline", "background");
+	private static final String CHARSET = "@charset";
+
+	private final PushbackReader reader;
+	private final Writer writer;
+	/**
+	 * Opening of the at-rules not written yet, because none of their rules had
+	 * any content so far.
+	 */
+	private final LinkedList<String> pendingBlocks = new LinkedList<String>();
+	private boolean charsetWritten;
+
+	private CssMinifier(final Reader reader, final Writer writer) {
+		this.reader = new PushbackReader(reader, 2);
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes the minified content of the reader to the writer. None of them is
+	 * closed.
+	 */
+	public static void minify(final Reader reader, final Writer writer) throws IOException {
+		new CssMinifier(reader, writer).minifyRules(false);
+		writer.flush();
+	}
+
+	/**
+	 * Minifies rules until the end of the input or of the current block.
+	 *
+	 * @param nested true inside the block of an at-rule.
+	 */
+	private void minifyRules(final boolean nested) throws IOException {
+		while (true) {
+			final StringBuilder prelude = new StringBuilder();
+			final int end = readPrelude(prelude);
+			final String text = minifySelector(prelude.toString());
+			if (end == '{') {
+				minifyBlock(text);
+			} else if (end == ';') {
+				if (isCharset(text)) {
+					if (!charsetWritten) {
+						charsetWritten = true;
+						emit(text + ";");
+					}
+				} else if (text.length() > 0) {
+					emit(text + ";");
+				}
+			} else if (end == '}' && !nested) {
+				// unbalanced brace, kept as it is
+				emit(text + "}");
+			} else {
+				// end of the input or of the enclosing block
+				if (text.length() > 0) {
+					emit(text);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Minifies the block opened by the given prelude, up to its closing brace.
+	 */
+	private void minifyBlock(final String prelude) throws IOException {
+		if (isNestedRulesAtRule(prelude)) {
+			pendingBlocks.addLast(prelude + "{");
+			minifyRules(true);
+			closeBlock();
+		} else {
+			minifyDeclarations(prelude);
+		}
+	}
+
+	private void minifyDeclarations(final String selector) throws IOException {
+		final List<String> declarations = new ArrayList<String>();
+		boolean opened = false;
+		int end = 0;
+		while (end != '}' && end != EOF) {
+			final StringBuilder raw = new StringBuilder();
+			end = readDeclaration(raw);
+			if (end == '{') {
+				// a rule nested inside declarations, keep the structure as it is
+				emit((opened ? "" : selector + "{") + join(declarations, true));
+				opened = true;
+				declarations.clear();
+				minifyBlock(minifySelector(raw.toString()));
+				continue;
+			}
+			final String declaration = minifyDeclaration(raw.toString());
+			if (declaration.length() > 0
+					&& (declarations.isEmpty() || !declarations.get(declarations.size() - 1).equals(declaration))) {
+				declarations.add(declaration);
+			}
+		}
+		if (opened) {
+			writer.write(join(declarations, false) + "}");
+		} else if (!declarations.isEmpty()) {
+			emit(selector + "{" + join(declarations, false) + "}");
+		}
+	}
+
+	/**
+	 * Closes the block of a nested rules at-rule, dropping it when it has no
+	 * content.
+	 */
+	private void closeBlock() throws IOException {
+		if (pendingBlocks.isEmpty()) {
+			writer.write('}');
+		} else {
+			pendingBlocks.removeLast();
+		}
+	}
+
+	/**
+	 * Writes content, preceded by the at-rules still pending.
+	 */
+	private void emit(final String content) throws IOException {
+		for (final String block : pendingBlocks) {
+			writer.write(block);
+		}
+		pendingBlocks.clear();
+		writer.write(content);
+	}
+
+	/**
+	 * Reads a selector or an at-rule prelude, with comments removed and
+	 * whitespace collapsed.
+	 *
+	 * @return the character ending the prelude: '{', ';', '}' or EOF.
+	 */
+	private int readPrelude(final StringBuilder prelude) throws IOException {
+		int depth = 0;
+		int c;
+		while ((c = reader.read()) != EOF) {
+			if (c == '/' && peek() == '*') {
+				final String comment = readComment();
+				if (comment != null && prelude.toString().trim().length() == 0) {
+					emit(comment);
+				} else {
+					appendSpace(prelude);
+				}
+			} else if (c == '"' || c == '\'') {
+				readString(c, prelude);
+			} else if (c == '\\') {
+				appendEscape(prelude);
+			} else if (Character.isWhitespace(c)) {
+				appendSpace(prelude);
+			} else if (c == '(' || c == '[') {
+				depth++;
+				prelude.append((char) c);
+			} else if (c == ')' || c == ']') {
+				depth = Math.max(0, depth - 1);
+				prelude.append((char) c);
+			} else if (depth == 0 && (c == '{' || c == ';' || c == '}')) {
+				return c;
+			} else {
+				prelude.append((char) c);
+			}
+		}
+		return EOF;
+	}
+
+	/**
+	 * Reads a declaration, with comments removed and whitespace collapsed.
+	 *
+	 * @return the character ending the declaration: ';', '}', '{' or EOF.
+	 */
+	private int readDeclaration(final StringBuilder declaration) throws IOException {
+		int depth = 0;
+		int c;
+		while ((c = reader.read()) != EOF) {
+			if (c == '/' && peek() == '*') {
+				readComment();
+				appendSpace(declaration);
+			} else if (c == '"' || c == '\'') {
+				readString(c, declaration);
+			} else if (c == '\\') {
+				appendEscape(declaration);
+			} else if (Character.isWhitespace(c)) {
+				appendSpace(declaration);
+			} else if (c == '(' || c == '[') {
+				depth++;
+				declaration.append((char) c);
+			} else if (c == ')' || c == ']') {
+				depth = Math.max(0, depth - 1);
+				declaration.append((char) c);
+			} else if (depth == 0 && (c == ';' || c == '}' || c == '{')) {
+				return c;
+			} else {
+				declaration.append((char) c);
+			}
+		}
+		return EOF;
+	}
+
+	/**
+	 * Reads a comment, the opening '/' being already consumed.
+	 *
+	 * @return the comment if it must be preserved, null otherwise.
+	 */
+	private String readComment() throws IOException {
+		reader.read();
+		final boolean important = peek() == '!';
+		final StringBuilder comment = important ? new StringBuilder("/*") : null;
+		int previous = 0;
+		int c;
+		while ((c = reader.read()) != EOF) {
+			if (comment != null) {
+				comment.append((char) c);
+			}
+			if (previous == '*' && c == '/') {
+				break;
+			}
+			previous = c;
+		}
+		return comment == null ? null : comment.toString();
+	}
+
+	private void readString(final int quote, final StringBuilder out) throws IOException {
+		out.append((char) quote);
+		int c;
+		while ((c = reader.read()) != EOF) {
+			out.append((char) c);
+			if (c == '\\') {
+				final int escaped = reader.read();
+				if (escaped != EOF) {
+					out.append((char) escaped);
+				}
+			} else if (c == quote || c == '\n') {
+				return;
+			}
+		}
+	}
+
+	private void appendEscape(final StringBuilder out) throws IOException {
+		out.append('\\');
+		final int escaped = reader.read();
+		if (escaped != EOF) {
+			out.append((char) escaped);
+		}
+	}
+
+	private int peek() throws IOException {
+		final int c = reader.read();
+		if (c != EOF) {
+			reader.unread(c);
+		}
+		return c;
+	}
+
+	private static void appendSpace(final StringBuilder out) {
+		if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+			out.append(' ');
+		}
+	}
+
+	private static boolean isCharset(final String prelude) {
+		return prelude.regionMatches(true, 0, CHARSET, 0, CHARSET.length());
+	}
+
+	private static boolean isNestedRulesAtRule(final String prelude) {
+		if (!prelude.startsWith("@")) {
+			return false;
+		}
+		int end = 1;
+		while (end < prelude.length() && isIdentifierPart(prelude.charAt(end))) {
+			end++;
+		}
+		return NESTED_RULES_AT_RULES.contains(prelude.substring(1, end).toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Removes the whitespace around combinators, commas and parentheses of a
+	 * selector or a prelude. Strings are kept as they are.
+	 */
+	private static String minifySelector(final String prelude) {
+		final boolean atRule = prelude.startsWith("@");
+		final String removableAround = atRule ? "," : ",>+~";
+		final StringBuilder out = new StringBuilder(prelude.length());
+		for (int i = 0; i < prelude.length(); i++) {
+			final char c = prelude.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = copyString(prelude, i, out);
+			} else if (c == '\\') {
+				out.append(c);
+				if (i + 1 < prelude.length()) {
+					out.append(prelude.charAt(++i));
+				}
+			} else if (c == ' ') {
+				final char previous = out.length() == 0 ? '(' : out.charAt(out.length() - 1);
+				final char next = i + 1 < prelude.length() ? prelude.charAt(i + 1) : ')';
+				if (removableAround.indexOf(previous) < 0 && removableAround.indexOf(next) < 0 && previous != '('
+						&& next != ')') {
+					out.append(c);
+				}
+			} else {
+				out.append(c);
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * @param declaration a declaration with comments removed and whitespace
+	 *                    collapsed.
+	 */
+	private static String minifyDeclaration(final String declaration) {
+		final String trimmed = declaration.trim();
+		final int colon = trimmed.indexOf(':');
+		if (colon <= 0) {
+			return trimmed;
+		}
+		final String property = trimmed.substring(0, colon).trim();
+		final String value = trimmed.substring(colon + 1).trim();
+		if (property.startsWith("--")) {
+			// custom properties hold token streams, kept as they are
+			return property + ":" + value;
+		}
+		final String name = property.toLowerCase(Locale.ENGLISH);
+		String minified = minifyValue(value, !FILTER_PROPERTIES.contains(name));
+		if (ZERO_SHORTHANDS.contains(name) && ("0 0".equals(minified) || "0 0 0".equals(minified)
+				|| "0 0 0 0".equals(minified))) {
+			minified = "0";
+		} else if (NONE_SHORTHANDS.contains(name) && "none".equalsIgnoreCase(minified)) {
+			minified = "0";
+		}
+		return property + ":" + minified;
+	}
+
+	private static String minifyValue(final String value, final boolean shortenColors) {
+		final StringBuilder out = new StringBuilder(value.length());
+		// functions enclosing the current position, innermost last
+		final LinkedList<String> functions = new LinkedList<String>();
+		int i = 0;
+		while (i < value.length()) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = copyString(value, i, out) + 1;
+			} else if (c == '\\') {
+				out.append(c);
+				if (i + 1 < value.length()) {
+					out.append(value.charAt(i + 1));
+				}
+				i += 2;
+			} else if (c == ' ') {
+				final char previous = out.length() == 0 ? ',' : out.charAt(out.length() - 1);
+				final char next = i + 1 < value.length() ? value.charAt(i + 1) : ')';
+				if (",(!".indexOf(previous) < 0 && ",)!".indexOf(next) < 0) {
+					out.append(c);
+				}
+				i++;
+			} else if (c == '#') {
+				final int end = identifierEnd(value, i + 1);
+				final String color = value.substring(i, end);
+				out.append(shortenColors ? shortenColor(color) : color);
+				i = end;
+			} else if (isNumberStart(value, i) && !isIdentifierPart(last(out)) && last(out) != '.') {
+				i = appendNumber(value, i, out, isInside(functions, MATH_FUNCTIONS));
+			} else if (isIdentifierPart(c)) {
+				final int end = identifierEnd(value, i);
+				final String identifier = value.substring(i, end);
+				out.append(identifier);
+				i = end;
+				if (i < value.length() && value.charAt(i) == '(' && "url".equalsIgnoreCase(identifier)) {
+					i = copyUrl(value, i, out);
+				}
+			} else if (c == '(') {
+				functions.addLast(lastIdentifier(out).toLowerCase(Locale.ENGLISH));
+				out.append(c);
+				i++;
+			} else if (c == ')') {
+				if (!functions.isEmpty()) {
+					functions.removeLast();
+				}
+				out.append(c);
+				i++;
+			} else {
+				out.append(c);
+				i++;
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Appends a number, shortened when possible.
+	 *
+	 * @return the position after the number and its unit.
+	 */
+	private static int appendNumber(final String value, final int start, final StringBuilder out,
+			final boolean keepUnit) {
+		int i = start;
+		if (value.charAt(i) == '-' || value.charAt(i) == '+') {
+			i++;
+		}
+		final int digitsStart = i;
+		while (i < value.length() && (Character.isDigit(value.charAt(i)) || value.charAt(i) == '.')) {
+			i++;
+		}
+		final int unitStart = i;
+		while (i < value.length() && (Character.isLetter(value.charAt(i)) || value.charAt(i) == '%')) {
+			i++;
+		}
+		final String sign = value.substring(start, digitsStart);
+		String number = value.substring(digitsStart, unitStart);
+		final String unit = value.substring(unitStart, i);
+		if (number.indexOf('.') != number.lastIndexOf('.') || (i < value.length() && isIdentifierPart(value.charAt(i)))) {
+			// not a plain number, keep it
+			out.append(value, start, i);
+			return i;
+		}
+		if (isZero(number)) {
+			if (unit.length() == 0 || (!keepUnit && LENGTH_UNITS.contains(unit.toLowerCase(Locale.ENGLISH)))) {
+				out.append('0');
+			} else {
+				out.append('0').append(unit);
+			}
+			return i;
+		}
+		if (number.indexOf('.') >= 0) {
+			number = trimZeros(number);
+		}
+		out.append(sign).append(number).append(unit);
+		return i;
+	}
+
+	/**
+	 * Removes the leading zeros of the integer part and the trailing zeros of the
+	 * fraction of a non zero decimal number.
+	 */
+	private static String trimZeros(final String number) {
+		int start = 0;
+		while (start < number.indexOf('.') && number.charAt(start) == '0') {
+			start++;
+		}
+		int end = number.length();
+		while (end > number.indexOf('.') + 1 && number.charAt(end - 1) == '0') {
+			end--;
+		}
+		if (end == number.indexOf('.') + 1) {
+			// no fraction left
+			end--;
+		}
+		return number.substring(start, end);
+	}
+
+	private static boolean isZero(final String number) {
+		for (int i = 0; i < number.length(); i++) {
+			final char c = number.charAt(i);
+			if (c != '0' && c != '.') {
+				return false;
+			}
+		}
+		return number.indexOf('0') >= 0;
+	}
+
+	private static boolean isNumberStart(final String value, final int i) {
+		int digit = i;
+		if (value.charAt(i) == '-' || value.charAt(i) == '+') {
+			digit++;
+		}
+		if (digit < value.length() && value.charAt(digit) == '.') {
+			digit++;
+		}
+		return digit < value.length() && Character.isDigit(value.charAt(digit));
+	}
+
+	/**
+	 * @param color a '#' followed by an identifier.
+	 */
+	private static String shortenColor(final String value) {
+		if (value.length() != 7 || !isHex(value)) {
+			return value;
+		}
+		final String color = value.toLowerCase(Locale.ENGLISH);
+		if (color.charAt(1) == color.charAt(2) && color.charAt(3) == color.charAt(4)
+				&& color.charAt(5) == color.charAt(6)) {
+			return new StringBuilder(4).append('#').append(color.charAt(1)).append(color.charAt(3))
+					.append(color.charAt(5)).toString();
+		}
+		return color;
+	}
+
+	private static boolean isHex(final String color) {
+		for (int i = 1; i < color.length(); i++) {
+			if (Character.digit(color.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies an unquoted url as it is, quoted urls are handled as any other
+	 * function.
+	 *
+	 * @param open position of the opening parenthesis.
+	 * @return the position after the url.
+	 */
+	private static int copyUrl(final String value, final int open, final StringBuilder out) {
+		int start = open + 1;
+		while (start < value.length() && value.charAt(start) == ' ') {
+			start++;
+		}
+		if (start < value.length() && (value.charAt(start) == '"' || value.charAt(start) == '\'')) {
+			return open;
+		}
+		final int close = value.indexOf(')', start);
+		if (close < 0) {
+			out.append(value, open, value.length());
+			return value.length();
+		}
+		out.append('(').append(value.substring(start, close).trim()).append(')');
+		return close + 1;
+	}
+
+	/**
+	 * Copies a quoted string.
+	 *
+	 * @return the position of the closing quote.
+	 */
+	private static int copyString(final String text, final int start, final StringBuilder out) {
+		final char quote = text.charAt(start);
+		out.append(quote);
+		int i = start + 1;
+		while (i < text.length()) {
+			final char c = text.charAt(i);
+			out.append(c);
+			if (c == '\\' && i + 1 < text.length()) {
+				out.append(text.charAt(++i));
+			} else if (c == quote) {
+				return i;
+			}
+			i++;
+		}
+		return text.length() - 1;
+	}
+
+	private static boolean isInside(final List<String> functions, final Collection<String> names) {
+		for (final String function : functions) {
+			if (names.contains(function)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String lastIdentifier(final StringBuilder out) {
+		int start = out.length();
+		while (start > 0 && isIdentifierPart(out.charAt(start - 1))) {
+			start--;
+		}
+		return out.substring(start);
+	}
+
+	private static char last(final StringBuilder out) {
+		return out.length() == 0 ? ' ' : out.charAt(out.length() - 1);
+	}
+
+	private static int identifierEnd(final String value, final int start) {
+		int end = start;
+		while (end < value.length() && isIdentifierPart(value.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	private static boolean isIdentifierPart(final char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+	}
+
+	private static String join(final List<String> declarations, final boolean trailingSemicolon) {
+		final StringBuilder out = new StringBuilder();
+		for (final String declaration : declarations) {
+			if (out.length() > 0) {
+				out.append(';');
+			}
+			out.append(declaration);
+		}
+		if (trailingSemicolon && out.length() > 0) {
+			out.append(';');
+		}
+		return out.toString();
+	}
+}
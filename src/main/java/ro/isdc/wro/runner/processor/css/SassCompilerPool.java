@@ -0,0 +1,150 @@
+package ro.isdc.wro.runner.processor.css;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.larsgrefer.sass.embedded.importer.CustomImporter;
+
+/**
+ * A pool of long-lived {@link SassContentCompiler} instances. Each compiler
+ * holds a connection to an embedded Sass process which is started lazily and
+ * kept warm between compilations. Idle compilers are health checked before
+ * reuse and replaced when their process died. The processes are stopped only
+ * when {@link #destroy()} is invoked.
+ *
+ * @author Ricardo Nunes
+ */
+public class SassCompilerPool {
+	private static final Logger LOG = LoggerFactory.getLogger(SassCompilerPool.class);
+	public static final int DEFAULT_POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	/**
+	 * Compilers idle for longer than this period are health checked before being
+	 * handed out.
+	 */
+	private static final long HEALTH_CHECK_IDLE_MILLIS = 30000;
+
+	private final int size;
+	private final CustomImporter importer;
+	private final Semaphore permits;
+	/**
+	 * Idle compilers, most recently used first.
+	 */
+	private final BlockingDeque<IdleCompiler> idle = new LinkedBlockingDeque<IdleCompiler>();
+	private volatile boolean destroyed;
+
+	public SassCompilerPool(final int size) {
+		this(size, null);
+	}
+
+	/**
+	 * @param importer registered on every embedded process, may be null.
+	 */
+	public SassCompilerPool(final int size, final CustomImporter importer) {
+		Validate.isTrue(size > 0, "Pool size must be positive, but was: %s", size);
+		this.size = size;
+		this.importer = importer;
+		this.permits = new Semaphore(size, true);
+	}
+
+	/**
+	 * Blocks until a compiler is available. The returned compiler must be given
+	 * back using {@link #release(SassContentCompiler)}.
+	 */
+	public SassContentCompiler borrow() throws IOException {
+		Validate.validState(!destroyed, "Compiler pool was destroyed");
+		try {
+			permits.acquire();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a Sass compiler");
+		}
+		try {
+			IdleCompiler candidate = null;
+			while ((candidate = idle.pollFirst()) != null) {
+				if (isHealthy(candidate)) {
+					return candidate.compiler;
+				}
+				LOG.info("Embedded Sass process is dead, respawning");
+				discard(candidate.compiler);
+			}
+			return create();
+		} catch (final IOException e) {
+			permits.release();
+			throw e;
+		} catch (final RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gives back a compiler previously obtained by {@link #borrow()}. Broken
+	 * compilers are discarded and lazily replaced on next borrow.
+	 */
+	public void release(final SassContentCompiler compiler) {
+		try {
+			if (destroyed || compiler.isBroken()) {
+				discard(compiler);
+			} else {
+				idle.offerFirst(new IdleCompiler(compiler));
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Stops all idle embedded processes. Compilers still in use are stopped when
+	 * released.
+	 */
+	public void destroy() {
+		destroyed = true;
+		IdleCompiler candidate = null;
+		while ((candidate = idle.pollFirst()) != null) {
+			discard(candidate.compiler);
+		}
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	private boolean isHealthy(final IdleCompiler candidate) {
+		if (candidate.compiler.isBroken()) {
+			return false;
+		}
+		final boolean checkRequired = System.currentTimeMillis() - candidate.idleSince > HEALTH_CHECK_IDLE_MILLIS;
+		return !checkRequired || candidate.compiler.isAlive();
+	}
+
+	private SassContentCompiler create() throws IOException {
+		LOG.debug("Starting embedded Sass process");
+		final SassContentCompiler compiler = new SassContentCompiler(importer);
+		compiler.init();
+		return compiler;
+	}
+
+	private void discard(final SassContentCompiler compiler) {
+		try {
+			compiler.close();
+		} catch (final IOException e) {
+			LOG.debug("IO Error while closing compiler", e);
+		}
+	}
+
+	private static final class IdleCompiler {
+		private final SassContentCompiler compiler;
+		private final long idleSince = System.currentTimeMillis();
+
+		private IdleCompiler(final SassContentCompiler compiler) {
+			this.compiler = compiler;
+		}
+	}
+}
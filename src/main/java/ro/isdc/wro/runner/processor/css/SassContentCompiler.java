@@ -1,29 +1,129 @@
 package ro.isdc.wro.runner.processor.css;
 
+import java.io.File;
 import java.io.IOException;
+import java.security.CodeSource;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.larsgrefer.sass.embedded.SassCompilationFailedException;
 import de.larsgrefer.sass.embedded.SassCompiler;
 import de.larsgrefer.sass.embedded.SassCompilerFactory;
+import de.larsgrefer.sass.embedded.importer.CustomImporter;
 
 /**
- * The SCSS Content compiler.
+ * The SCSS Content compiler. Wraps a single connection to an embedded Sass
+ * process.
  */
 public class SassContentCompiler {
+	private static final Logger LOG = LoggerFactory.getLogger(SassContentCompiler.class);
+	/**
+	 * The compile options used by {@link #compileContent(String)}, these are the
+	 * defaults of the embedded host.
+	 */
+	private static final String OPTIONS = "syntax=scss;outputStyle=expanded;sourceMap=false";
+	private static final String FINGERPRINT = computeFingerprint();
 
 	SassCompiler sassCompiler;
+	/**
+	 * Registered on the embedded process to load modules, may be null.
+	 */
+	private final CustomImporter importer;
+	/**
+	 * Set when the connection to the embedded process failed, the compiler must
+	 * not be reused afterwards.
+	 */
+	private volatile boolean broken;
+
+	public SassContentCompiler() {
+		this(null);
+	}
+
+	/**
+	 * @param importer used to load the modules of {@link #compileModule(String)}.
+	 */
+	public SassContentCompiler(final CustomImporter importer) {
+		this.importer = importer;
+	}
 
 	public void init() throws IOException {
 		sassCompiler = SassCompilerFactory.bundled();
+		if (importer != null) {
+			sassCompiler.registerImporter(importer);
+		}
+		broken = false;
 	}
 
 	public void close() throws IOException {
-		sassCompiler.close();
+		if (sassCompiler != null) {
+			sassCompiler.close();
+		}
+	}
+
+	/**
+	 * Health check performing a version request round trip to the embedded
+	 * process.
+	 *
+	 * @return true if the embedded process is still responding.
+	 */
+	public boolean isAlive() {
+		if (broken || sassCompiler == null) {
+			return false;
+		}
+		try {
+			sassCompiler.getVersion();
+			return true;
+		} catch (final Exception e) {
+			LOG.debug("Embedded Sass process is not responding", e);
+			broken = true;
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if an IO failure was detected on this compiler connection.
+	 */
+	public boolean isBroken() {
+		return broken;
+	}
+
+	/**
+	 * @return a value identifying the bundled compiler version and the options
+	 *         used for compilation, without starting an embedded process.
+	 */
+	public static String getFingerprint() {
+		return FINGERPRINT;
+	}
+
+	private static String computeFingerprint() {
+		final Package hostPackage = SassCompiler.class.getPackage();
+		String version = hostPackage == null ? null : hostPackage.getImplementationVersion();
+		if (version == null) {
+			// fallback to the jar name, which contains the version
+			final CodeSource codeSource = SassCompiler.class.getProtectionDomain().getCodeSource();
+			version = codeSource == null ? "unknown" : new File(codeSource.getLocation().getPath()).getName();
+		}
+		return "sass-embedded-host:" + version + ";" + OPTIONS;
 	}
 
 	public String compileContent(String content) throws IOException, SassCompilationFailedException {
+		try {
+			return sassCompiler.compileScssString(content).getCss();
+		} catch (final IOException e) {
+			broken = true;
+			throw e;
+		}
+	}
 
-		return sassCompiler.compileScssString(content).getCss();
+	/**
+	 * Compiles the module loaded by the importer from the given url, Sass
+	 * resolves its {@code @use} and {@code @import} rules itself.
+	 */
+	public String compileModule(final String url) throws IOException, SassCompilationFailedException {
+		Validate.validState(importer != null, "No importer registered to load: %s", url);
+		return compileContent("@use \"" + url + "\";");
 	}
 
-}
\ No newline at end of file
+}
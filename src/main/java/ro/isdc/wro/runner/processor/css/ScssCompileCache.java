@@ -0,0 +1,154 @@
+package ro.isdc.wro.runner.processor.css;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ro.isdc.wro.runner.support.HashUtils;
+
+/**
+ * Content addressed cache of compiled SCSS. The first level is kept in memory
+ * and evicts the least recently used entries once the configured size is
+ * exceeded. The optional second level stores each result as a file named after
+ * its key inside a folder, which allows the results to survive between runs.
+ *
+ * @author Ricardo Nunes
+ */
+public class ScssCompileCache {
+	private static final Logger LOG = LoggerFactory.getLogger(ScssCompileCache.class);
+	/**
+	 * Default upper limit of characters held by the memory level.
+	 */
+	public static final long DEFAULT_MAX_MEMORY_CHARS = 32L * 1024 * 1024;
+	private static final String FILE_EXTENSION = ".css";
+
+	private final long maxMemoryChars;
+	private final File folder;
+	private final LinkedHashMap<String, String> memory = new LinkedHashMap<String, String>(16, 0.75f, true);
+	private long memoryChars;
+
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param folder where the disk level is stored, or null to use the memory
+	 *               level only.
+	 */
+	public ScssCompileCache(final File folder) {
+		this(folder, DEFAULT_MAX_MEMORY_CHARS);
+	}
+
+	public ScssCompileCache(final File folder, final long maxMemoryChars) {
+		Validate.isTrue(maxMemoryChars >= 0, "Cache size cannot be negative");
+		this.folder = folder;
+		this.maxMemoryChars = maxMemoryChars;
+		if (folder != null && !folder.exists()) {
+			folder.mkdirs();
+		}
+	}
+
+	/**
+	 * @param content     the flattened SCSS sent to the compiler.
+	 * @param fingerprint identifies the compiler version and its options.
+	 * @return the key under which the compiled content is stored.
+	 */
+	public static String key(final String content, final String fingerprint) {
+		return HashUtils.sha256Hex(fingerprint, content);
+	}
+
+	/**
+	 * @return the compiled css for the given key or null if not cached.
+	 */
+	public String get(final String key) {
+		String css = null;
+		synchronized (memory) {
+			css = memory.get(key);
+		}
+		if (css != null) {
+			memoryHits.incrementAndGet();
+			return css;
+		}
+		css = readFromDisk(key);
+		if (css != null) {
+			diskHits.incrementAndGet();
+			putInMemory(key, css);
+			return css;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	public void put(final String key, final String css) {
+		putInMemory(key, css);
+		writeToDisk(key, css);
+	}
+
+	/**
+	 * Logs the hit/miss counters collected so far.
+	 */
+	public void logStatistics() {
+		final long lookups = memoryHits.get() + diskHits.get() + misses.get();
+		if (lookups > 0) {
+			LOG.info("SCSS compile cache: {} memory hits, {} disk hits, {} misses", memoryHits.get(), diskHits.get(),
+					misses.get());
+		}
+	}
+
+	private void putInMemory(final String key, final String css) {
+		if (css.length() > maxMemoryChars) {
+			return;
+		}
+		synchronized (memory) {
+			final String previous = memory.put(key, css);
+			memoryChars += css.length() - (previous == null ? 0 : previous.length());
+			final Iterator<Map.Entry<String, String>> iterator = memory.entrySet().iterator();
+			while (memoryChars > maxMemoryChars && iterator.hasNext()) {
+				memoryChars -= iterator.next().getValue().length();
+				iterator.remove();
+			}
+		}
+	}
+
+	private String readFromDisk(final String key) {
+		if (folder == null) {
+			return null;
+		}
+		final File file = new File(folder, key + FILE_EXTENSION);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return FileUtils.readFileToString(file, StandardCharsets.UTF_8.name());
+		} catch (final IOException e) {
+			LOG.warn("Cannot read cached compilation: {}", file, e);
+			return null;
+		}
+	}
+
+	private void writeToDisk(final String key, final String css) {
+		if (folder == null) {
+			return;
+		}
+		final File file = new File(folder, key + FILE_EXTENSION);
+		try {
+			// write to a temporary file first, concurrent readers never see partial content
+			final File tempFile = File.createTempFile(key, ".tmp", folder);
+			FileUtils.writeStringToFile(tempFile, css, StandardCharsets.UTF_8.name());
+			if (!tempFile.renameTo(file)) {
+				FileUtils.deleteQuietly(tempFile);
+			}
+		} catch (final IOException e) {
+			LOG.warn("Cannot write cached compilation: {}", file, e);
+		}
+	}
+}
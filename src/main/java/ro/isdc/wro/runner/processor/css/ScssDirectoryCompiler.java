@@ -0,0 +1,292 @@
+package ro.isdc.wro.runner.processor.css;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bit3.jsass.CompilationException;
+import io.bit3.jsass.OutputStyle;
+import ro.isdc.wro.WroRuntimeException;
+import wrm.libsass.SassCompiler;
+import wrm.libsass.SassCompiler.InputSyntax;
+
+/**
+ * Compiles every SCSS entry of a folder with libsass, without a wro model. The
+ * entries are the {@code .scss} files whose name does not start with an
+ * underscore; each one is compiled to a {@code .css} file with the same
+ * relative path in the output folder.
+ * <p/>
+ * Entries are compiled in parallel, every thread using its own
+ * {@link SassCompiler}. An entry is skipped when its output is newer than the
+ * entry and than all the files it imports, found by scanning the
+ * {@code @import}, {@code @use} and {@code @forward} rules.
+ *
+ * @author Ricardo Nunes
+ */
+public class ScssDirectoryCompiler {
+	private static final Logger LOG = LoggerFactory.getLogger(ScssDirectoryCompiler.class);
+	private static final String ENTRY_EXTENSION = ".scss";
+	private static final Pattern PATTERN_IMPORT = Pattern
+			.compile("@(?:import|use|forward)\\s+((?:[\"'][^\"']+[\"']\\s*,?\\s*)+)");
+	private static final Pattern PATTERN_URL = Pattern.compile("[\"']([^\"']+)[\"']");
+	private static final int PRECISION = 5;
+
+	private final File inputFolder;
+	private final File outputFolder;
+	private final String includePath;
+	private final List<File> includeFolders = new ArrayList<File>();
+	private final int threads;
+	/**
+	 * Files directly imported by each scanned file, shared by the entries.
+	 */
+	private final ConcurrentMap<File, List<File>> importsCache = new ConcurrentHashMap<File, List<File>>();
+	private final ThreadLocal<SassCompiler> compilers = new ThreadLocal<SassCompiler>() {
+		@Override
+		protected SassCompiler initialValue() {
+			return newCompiler();
+		}
+	};
+
+	/**
+	 * @param includePath folders searched for imports, separated by
+	 *                    {@link File#pathSeparator}, may be null.
+	 */
+	public ScssDirectoryCompiler(final File inputFolder, final File outputFolder, final String includePath,
+			final int threads) {
+		Validate.isTrue(inputFolder.isDirectory(), "SCSS input folder does not exist: %s", inputFolder);
+		Validate.notNull(outputFolder, "SCSS output folder cannot be null");
+		Validate.isTrue(threads > 0, "Threads must be positive, but was: %s", threads);
+		this.inputFolder = inputFolder;
+		this.outputFolder = outputFolder;
+		this.includePath = includePath;
+		this.threads = threads;
+		if (includePath != null) {
+			for (final String folder : includePath.split(File.pathSeparator)) {
+				if (StringUtils.isNotBlank(folder)) {
+					includeFolders.add(new File(folder.trim()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compiles the out of date entries.
+	 *
+	 * @throws WroRuntimeException if any entry failed to compile, once all the
+	 *                             entries are done.
+	 */
+	public void compile() throws IOException {
+		final long start = System.currentTimeMillis();
+		final List<Path> entries = findEntries();
+		LOG.info("Found {} SCSS entries in {}", entries.size(), inputFolder);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		int compiled = 0;
+		int upToDate = 0;
+		final List<String> failed = new ArrayList<String>();
+		try {
+			final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (final Path entry : entries) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						return compileIfOutdated(entry);
+					}
+				}));
+			}
+			for (int i = 0; i < entries.size(); i++) {
+				try {
+					if (results.get(i).get()) {
+						compiled++;
+					} else {
+						upToDate++;
+					}
+				} catch (final ExecutionException e) {
+					LOG.error("Cannot compile " + entries.get(i) + ": " + e.getCause().getMessage());
+					LOG.debug("Compilation error", e.getCause());
+					failed.add(entries.get(i).toString());
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WroRuntimeException("Interrupted while compiling SCSS", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		LOG.info("SCSS: {} compiled, {} up to date, {} failed in {}ms", compiled, upToDate, failed.size(),
+				System.currentTimeMillis() - start);
+		if (!failed.isEmpty()) {
+			throw new WroRuntimeException("Failed to compile " + failed.size() + " SCSS entries: " + failed);
+		}
+	}
+
+	private List<Path> findEntries() throws IOException {
+		final List<Path> entries = new ArrayList<Path>();
+		Files.walkFileTree(inputFolder.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+				final String name = file.getFileName().toString();
+				if (name.endsWith(ENTRY_EXTENSION) && !name.startsWith("_")) {
+					entries.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+				LOG.warn("Cannot read {}: {}", file, e.getMessage());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(entries);
+		return entries;
+	}
+
+	/**
+	 * @return false if the output was up to date.
+	 */
+	private boolean compileIfOutdated(final Path entry) throws IOException, CompilationException {
+		final Path output = getOutput(entry);
+		if (isUpToDate(entry.toFile(), output.toFile())) {
+			LOG.debug("{} is up to date", output);
+			return false;
+		}
+		final long start = System.currentTimeMillis();
+		final String css = compilers.get()
+				.compileFile(entry.toAbsolutePath().toString(), output.toAbsolutePath().toString(), null).getCss();
+		Files.createDirectories(output.getParent());
+		Files.write(output, css.getBytes(StandardCharsets.UTF_8));
+		LOG.info("{} compiled in {}ms", inputFolder.toPath().relativize(entry), System.currentTimeMillis() - start);
+		return true;
+	}
+
+	private Path getOutput(final Path entry) {
+		final String relative = inputFolder.toPath().relativize(entry).toString();
+		return outputFolder.toPath()
+				.resolve(relative.substring(0, relative.length() - ENTRY_EXTENSION.length()) + ".css");
+	}
+
+	private boolean isUpToDate(final File entry, final File output) throws IOException {
+		if (!output.isFile()) {
+			return false;
+		}
+		final long outputTime = output.lastModified();
+		for (final File input : getInputs(entry)) {
+			if (input.lastModified() > outputTime) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the entry and all the files it imports, transitively.
+	 */
+	private Set<File> getInputs(final File entry) throws IOException {
+		final Set<File> inputs = new HashSet<File>();
+		final List<File> toScan = new ArrayList<File>();
+		toScan.add(entry.getCanonicalFile());
+		while (!toScan.isEmpty()) {
+			final File file = toScan.remove(toScan.size() - 1);
+			if (inputs.add(file)) {
+				toScan.addAll(getImports(file));
+			}
+		}
+		return inputs;
+	}
+
+	private List<File> getImports(final File file) throws IOException {
+		List<File> imports = importsCache.get(file);
+		if (imports == null) {
+			imports = new ArrayList<File>();
+			final String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			final Matcher matcher = PATTERN_IMPORT.matcher(content);
+			while (matcher.find()) {
+				final Matcher urlMatcher = PATTERN_URL.matcher(matcher.group(1));
+				while (urlMatcher.find()) {
+					final File resolved = resolve(file.getParentFile(), urlMatcher.group(1));
+					if (resolved != null) {
+						imports.add(resolved.getCanonicalFile());
+					}
+				}
+			}
+			importsCache.put(file, imports);
+		}
+		return imports;
+	}
+
+	/**
+	 * Finds an imported file like Sass does, relative to the importing file then
+	 * in the include folders.
+	 *
+	 * @return null for built-in modules, plain css urls and unknown files.
+	 */
+	private File resolve(final File folder, final String url) {
+		if (url.startsWith("sass:") || url.contains("://") || url.startsWith("//")) {
+			return null;
+		}
+		final List<File> folders = new ArrayList<File>();
+		folders.add(folder);
+		folders.addAll(includeFolders);
+		for (final File base : folders) {
+			for (final String candidate : getCandidates(url)) {
+				final File file = new File(base, candidate);
+				if (file.isFile()) {
+					return file;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static List<String> getCandidates(final String url) {
+		final List<String> candidates = new ArrayList<String>();
+		final int slash = url.lastIndexOf('/');
+		final String folder = url.substring(0, slash + 1);
+		final String name = url.substring(slash + 1);
+		if (name.endsWith(".scss") || name.endsWith(".css")) {
+			candidates.add(url);
+			candidates.add(folder + "_" + name);
+		} else {
+			candidates.add(url + ".scss");
+			candidates.add(folder + "_" + name + ".scss");
+			candidates.add(url + "/_index.scss");
+			candidates.add(url + "/index.scss");
+			candidates.add(url + ".css");
+		}
+		return candidates;
+	}
+
+	private SassCompiler newCompiler() {
+		final SassCompiler compiler = new SassCompiler();
+		compiler.setGenerateSourceMap(false);
+		compiler.setIncludePaths(includePath);
+		compiler.setInputSyntax(InputSyntax.scss);
+		compiler.setOutputStyle(OutputStyle.NESTED);
+		compiler.setPrecision(PRECISION);
+		return compiler;
+	}
+}
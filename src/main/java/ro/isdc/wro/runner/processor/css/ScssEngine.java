@@ -9,15 +9,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.larsgrefer.sass.embedded.SassCompilationFailedException;
+import de.larsgrefer.sass.embedded.importer.CustomImporter;
 import ro.isdc.wro.WroRuntimeException;
 
+/**
+ * Compiles SCSS content using compilers from a {@link SassCompilerPool}. The
+ * engine is thread-safe and keeps the embedded Sass processes alive until
+ * {@link #destroy()} is invoked.
+ */
 public class ScssEngine {
 	private static final Logger LOG = LoggerFactory.getLogger(ScssEngine.class);
 
-	protected SassContentCompiler compiler;
+	protected final SassCompilerPool compilerPool;
 
 	public ScssEngine() {
-		compiler = initCompiler();
+		this(SassCompilerPool.DEFAULT_POOL_SIZE);
+	}
+
+	public ScssEngine(final int poolSize) {
+		this(poolSize, null);
+	}
+
+	/**
+	 * @param importer registered on the embedded processes to load the modules of
+	 *                 {@link #processModule(String)}, may be null.
+	 */
+	public ScssEngine(final int poolSize, final CustomImporter importer) {
+		compilerPool = new SassCompilerPool(poolSize, importer);
 	}
 
 	public String process(String filename, String content) {
@@ -26,38 +44,22 @@ public class ScssEngine {
 			return StringUtils.EMPTY;
 		}
 		try {
-			synchronized (this) {
-				
-				return processContent(content);
-			}
+			return processContent(content);
 		} catch (final Exception e) {
 			throw new WroRuntimeException(e.getMessage(), e);
-		} finally {
-			close();
-		}
-	}
-
-	protected SassContentCompiler initCompiler() {
-		SassContentCompiler mCompiler = new SassContentCompiler();
-		try {
-			mCompiler.init();
-		} catch (IOException e) {
-			LOG.error("Error init compiler: ", e);
 		}
-		return mCompiler;
 	}
 
-	protected String processContent(String content) throws SassCompilationFailedException {
+	protected String processContent(String content) throws IOException, SassCompilationFailedException {
 		// LOG.info("compiling content: {}", content);
 
 		String out = null;
 		try {
-			out = compiler.compileContent(content);
-		} catch (SassCompilationFailedException e) {
-			LOG.error("Error compiling content: ", e);
-			throw e;
-		} catch (IOException e) {
-			LOG.error("IO fatal Error: ", e);
+			out = compile(content);
+		} catch (final IOException e) {
+			// the embedded process died, retry once with a respawned one
+			LOG.warn("IO Error while compiling, retrying with a new Sass process: {}", e.getMessage());
+			out = compile(content);
 		}
 
 		// LOG.info("compiled content: {}", content);
@@ -66,12 +68,47 @@ public class ScssEngine {
 		return out;
 	}
 
-	protected void close() {
+	/**
+	 * Compiles the module loaded by the importer from the given url.
+	 */
+	public String processModule(final String url) {
+		try {
+			try {
+				return compile(url, true);
+			} catch (final IOException e) {
+				LOG.warn("IO Error while compiling, retrying with a new Sass process: {}", e.getMessage());
+				return compile(url, true);
+			}
+		} catch (final Exception e) {
+			throw new WroRuntimeException(e.getMessage(), e);
+		}
+	}
+
+	private String compile(final String content) throws IOException, SassCompilationFailedException {
+		return compile(content, false);
+	}
+
+	/**
+	 * @param module true if the source is the url of a module to compile.
+	 */
+	private String compile(final String source, final boolean module)
+			throws IOException, SassCompilationFailedException {
+		final SassContentCompiler compiler = compilerPool.borrow();
 		try {
-			compiler.close();
-		} catch (IOException e) {
-			LOG.error("IO fatal Error while close: ", e);
+			return module ? compiler.compileModule(source) : compiler.compileContent(source);
+		} catch (SassCompilationFailedException e) {
+			LOG.error("Error compiling content: ", e);
+			throw e;
+		} finally {
+			compilerPool.release(compiler);
 		}
 	}
 
+	/**
+	 * Stops all embedded Sass processes.
+	 */
+	public void destroy() {
+		compilerPool.destroy();
+	}
+
 }
@@ -0,0 +1,324 @@
+package ro.isdc.wro.runner.processor.css;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Rewrites the {@code @use} rules of a SCSS document into {@code @import}
+ * rules, so that the used modules can be flattened by the import processor,
+ * and removes the namespace of the members referenced through them. The whole
+ * document is scanned once; comments, strings and unquoted urls are copied
+ * untouched.
+ * <p/>
+ * Supported forms are {@code @use 'x' as ns;}, {@code @use 'x' as *;} and
+ * {@code @use 'x';}, whose namespace is the last component of the url without
+ * extension. A namespace is removed only before a variable ({@code ns.$var}),
+ * a function call ({@code ns.fn(}) or the mixin of an {@code @include}. Built-in
+ * modules ({@code sass:math}) and rules configuring the module ({@code with})
+ * are kept as they are.
+ *
+ * @author Ricardo Nunes
+ */
+public class ScssUseRewriter {
+	private static final String BUILT_IN_MODULE_PREFIX = "sass:";
+	private static final String DEFAULT_EXTENSION = ".scss";
+	private static final String[] KNOWN_EXTENSIONS = { ".scss", ".sass", ".css" };
+
+	private final String css;
+	private final StringBuilder out;
+	private final Set<String> namespaces = new HashSet<String>();
+	private int pos;
+	/**
+	 * True while the next token is the mixin name of an {@code @include}.
+	 */
+	private boolean includePending;
+
+	private ScssUseRewriter(final String css) {
+		this.css = css;
+		this.out = new StringBuilder(css.length());
+	}
+
+	/**
+	 * @return the content with {@code @use} rules replaced by {@code @import}
+	 *         rules and without the namespace of the used members.
+	 */
+	public static String rewrite(final String css) {
+		final ScssUseRewriter rewriter = new ScssUseRewriter(css);
+		rewriter.scanCode(false);
+		return rewriter.out.toString();
+	}
+
+	/**
+	 * @param interpolation true when scanning the content of {@code #{...}},
+	 *                      which ends with the matching closing brace.
+	 */
+	private void scanCode(final boolean interpolation) {
+		int depth = 0;
+		while (pos < css.length()) {
+			final char c = css.charAt(pos);
+			if (Character.isWhitespace(c)) {
+				out.append(c);
+				pos++;
+				continue;
+			}
+			final boolean include = includePending;
+			includePending = false;
+			if (c == '/' && next(1) == '*') {
+				copyBlockComment();
+			} else if (c == '/' && next(1) == '/') {
+				copyLineComment();
+			} else if (c == '"' || c == '\'') {
+				copyString(c);
+			} else if (c == '#' && next(1) == '{') {
+				copyInterpolation();
+			} else if (c == '@') {
+				scanAtRule(interpolation);
+			} else if (isIdentifierStart(c)) {
+				scanIdentifier(include);
+			} else if (interpolation && c == '{') {
+				depth++;
+				out.append(c);
+				pos++;
+			} else if (interpolation && c == '}') {
+				if (depth == 0) {
+					return;
+				}
+				depth--;
+				out.append(c);
+				pos++;
+			} else {
+				out.append(c);
+				pos++;
+			}
+		}
+	}
+
+	private void copyBlockComment() {
+		final int end = css.indexOf("*/", pos + 2);
+		copyUntil(end < 0 ? css.length() : end + 2);
+	}
+
+	private void copyLineComment() {
+		final int end = css.indexOf('\n', pos);
+		copyUntil(end < 0 ? css.length() : end);
+	}
+
+	private void copyString(final char quote) {
+		out.append(quote);
+		pos++;
+		while (pos < css.length()) {
+			final char c = css.charAt(pos);
+			if (c == '\\') {
+				copyUntil(Math.min(pos + 2, css.length()));
+			} else if (c == '#' && next(1) == '{') {
+				copyInterpolation();
+			} else if (c == quote) {
+				out.append(c);
+				pos++;
+				return;
+			} else if (c == '\n') {
+				// unterminated string
+				return;
+			} else {
+				out.append(c);
+				pos++;
+			}
+		}
+	}
+
+	private void copyInterpolation() {
+		out.append("#{");
+		pos += 2;
+		scanCode(true);
+		if (pos < css.length()) {
+			out.append('}');
+			pos++;
+		}
+	}
+
+	private void scanAtRule(final boolean interpolation) {
+		final int start = pos;
+		pos++;
+		final String name = readIdentifier();
+		if (!interpolation && "use".equals(name) && rewriteUse()) {
+			return;
+		}
+		out.append(css, start, pos);
+		includePending = "include".equals(name);
+	}
+
+	/**
+	 * Replaces the {@code @use} rule starting at the current position, right
+	 * after the keyword.
+	 *
+	 * @return false if the rule is kept as it is.
+	 */
+	private boolean rewriteUse() {
+		int p = skipWhitespace(pos);
+		if (p >= css.length() || (css.charAt(p) != '\'' && css.charAt(p) != '"')) {
+			return false;
+		}
+		final char quote = css.charAt(p);
+		final int urlEnd = css.indexOf(quote, p + 1);
+		if (urlEnd < 0) {
+			return false;
+		}
+		final String url = css.substring(p + 1, urlEnd);
+		if (url.startsWith(BUILT_IN_MODULE_PREFIX) || url.indexOf('\\') >= 0 || url.contains("#{")) {
+			return false;
+		}
+		p = skipWhitespace(urlEnd + 1);
+		String namespace = getDefaultNamespace(url);
+		if (css.startsWith("as", p) && p + 2 < css.length() && Character.isWhitespace(css.charAt(p + 2))) {
+			p = skipWhitespace(p + 2);
+			if (p < css.length() && css.charAt(p) == '*') {
+				namespace = null;
+				p++;
+			} else {
+				final int namespaceEnd = identifierEnd(p);
+				if (namespaceEnd == p) {
+					return false;
+				}
+				namespace = css.substring(p, namespaceEnd);
+				p = namespaceEnd;
+			}
+			p = skipWhitespace(p);
+		}
+		if (p >= css.length() || css.charAt(p) != ';') {
+			// configured with 'with (...)' or not a valid rule
+			return false;
+		}
+		out.append("@import '").append(url);
+		if (!hasKnownExtension(url)) {
+			out.append(DEFAULT_EXTENSION);
+		}
+		out.append("';");
+		pos = p + 1;
+		if (namespace != null) {
+			namespaces.add(namespace);
+		}
+		return true;
+	}
+
+	private void scanIdentifier(final boolean include) {
+		final int start = pos;
+		final String identifier = readIdentifier();
+		if ("url".equals(identifier) && next(0) == '(') {
+			out.append(identifier);
+			copyUrl();
+			return;
+		}
+		// the minus sign of a negated member is read as part of the identifier
+		final String namespace = identifier.startsWith("-") && !namespaces.contains(identifier)
+				? identifier.substring(1) : identifier;
+		if (next(0) == '.' && namespaces.contains(namespace) && !isMemberAccess(start)
+				&& isNamespacedMember(pos + 1, include)) {
+			// drop 'ns.', keeping the minus sign
+			out.append(css, start, pos - namespace.length());
+			pos++;
+			if (include) {
+				includePending = true;
+			}
+			return;
+		}
+		out.append(css, start, pos);
+	}
+
+	/**
+	 * Copies an unquoted url, whose content may contain '//'.
+	 */
+	private void copyUrl() {
+		out.append('(');
+		pos++;
+		final int p = skipWhitespace(pos);
+		if (p < css.length() && (css.charAt(p) == '\'' || css.charAt(p) == '"')) {
+			return;
+		}
+		final int end = css.indexOf(')', pos);
+		copyUntil(end < 0 ? css.length() : end);
+	}
+
+	/**
+	 * @param memberStart position right after 'ns.'.
+	 */
+	private boolean isNamespacedMember(final int memberStart, final boolean include) {
+		if (memberStart >= css.length()) {
+			return false;
+		}
+		if (css.charAt(memberStart) == '$') {
+			return true;
+		}
+		final int memberEnd = identifierEnd(memberStart);
+		if (memberEnd == memberStart) {
+			return false;
+		}
+		return include || (memberEnd < css.length() && css.charAt(memberEnd) == '(');
+	}
+
+	/**
+	 * @return true if the identifier starting at the position is part of a
+	 *         selector, a variable or a number rather than a namespace.
+	 */
+	private boolean isMemberAccess(final int identifierStart) {
+		if (identifierStart == 0) {
+			return false;
+		}
+		final char previous = css.charAt(identifierStart - 1);
+		return previous == '.' || previous == '$' || previous == '#' || previous == '%' || previous == '&'
+				|| isIdentifierPart(previous);
+	}
+
+	private String readIdentifier() {
+		final int start = pos;
+		pos = identifierEnd(pos);
+		return css.substring(start, pos);
+	}
+
+	private int identifierEnd(final int start) {
+		int p = start;
+		while (p < css.length() && isIdentifierPart(css.charAt(p))) {
+			p++;
+		}
+		return p;
+	}
+
+	private int skipWhitespace(final int start) {
+		int p = start;
+		while (p < css.length() && Character.isWhitespace(css.charAt(p))) {
+			p++;
+		}
+		return p;
+	}
+
+	private void copyUntil(final int end) {
+		out.append(css, pos, end);
+		pos = end;
+	}
+
+	private char next(final int offset) {
+		return pos + offset < css.length() ? css.charAt(pos + offset) : 0;
+	}
+
+	private static String getDefaultNamespace(final String url) {
+		final String basename = url.substring(url.lastIndexOf('/') + 1);
+		final int dot = basename.indexOf('.');
+		return dot < 0 ? basename : basename.substring(0, dot);
+	}
+
+	private static boolean hasKnownExtension(final String url) {
+		for (final String extension : KNOWN_EXTENSIONS) {
+			if (url.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isIdentifierStart(final char c) {
+		return Character.isLetter(c) || c == '_' || c == '-';
+	}
+
+	private static boolean isIdentifierPart(final char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+	}
+}
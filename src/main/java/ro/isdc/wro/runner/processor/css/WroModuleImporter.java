@@ -0,0 +1,230 @@
+package ro.isdc.wro.runner.processor.css;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.larsgrefer.sass.embedded.importer.CustomImporter;
+import ro.isdc.wro.config.Context;
+import ro.isdc.wro.model.resource.locator.factory.UriLocatorFactory;
+import sass.embedded_protocol.EmbeddedSass.InboundMessage.ImportResponse.ImportSuccess;
+import sass.embedded_protocol.EmbeddedSass.Syntax;
+
+/**
+ * Lets the embedded Sass compiler load modules through the wro4j
+ * {@link UriLocatorFactory}, so that {@code @use} and {@code @import} rules are
+ * resolved by Sass itself and each module is parsed once per compilation.
+ * <p/>
+ * Every compilation is registered under a token and its modules are addressed
+ * as {@code wro4j://<token>/<uri>}. The token gives access to the wro4j
+ * {@link Context} of the group being processed, which the locators need when
+ * Sass calls back from another thread. A url is resolved like Sass does on the
+ * file system: {@code x.scss}, {@code _x.scss}, {@code x/_index.scss},
+ * {@code x/index.scss} and finally {@code x.css}.
+ *
+ * @author Ricardo Nunes
+ */
+public class WroModuleImporter extends CustomImporter {
+	private static final Logger LOG = LoggerFactory.getLogger(WroModuleImporter.class);
+	private static final String SCHEME = "wro4j";
+
+	private final UriLocatorFactory uriLocatorFactory;
+	private final Map<String, Compilation> compilations = new ConcurrentHashMap<String, Compilation>();
+	private final AtomicLong counter = new AtomicLong();
+
+	public WroModuleImporter(final UriLocatorFactory uriLocatorFactory) {
+		this.uriLocatorFactory = uriLocatorFactory;
+	}
+
+	/**
+	 * A compilation in progress, created by {@link WroModuleImporter#start(String, String)}
+	 * and released by {@link WroModuleImporter#finish(Compilation)}.
+	 */
+	public static class Compilation {
+		private final String token;
+		private final Context context;
+		private final String entryUri;
+		/**
+		 * Content of the modules found while canonicalizing, by uri.
+		 */
+		private final Map<String, String> modules = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+
+		private Compilation(final String token, final Context context, final String entryUri) {
+			this.token = token;
+			this.context = context;
+			this.entryUri = entryUri;
+		}
+
+		/**
+		 * @return the url to {@code @use} in order to compile the entry.
+		 */
+		public String getEntryUrl() {
+			return toUrl(token, entryUri);
+		}
+
+		/**
+		 * @return the uri of all the modules loaded by the compilation, except the
+		 *         entry.
+		 */
+		public List<String> getLoadedUris() {
+			synchronized (modules) {
+				final List<String> uris = new ArrayList<String>(modules.keySet());
+				uris.remove(entryUri);
+				return uris;
+			}
+		}
+	}
+
+	/**
+	 * Registers a compilation of the given entry, captures the {@link Context}
+	 * of the current thread.
+	 *
+	 * @param entryUri     the uri of the resource to compile.
+	 * @param entryContent its content, as produced by the previous processors.
+	 */
+	public Compilation start(final String entryUri, final String entryContent) {
+		final String token = "c" + counter.incrementAndGet();
+		final Compilation compilation = new Compilation(token, Context.isContextSet() ? Context.get() : null,
+				normalize(entryUri));
+		compilation.modules.put(compilation.entryUri, entryContent);
+		compilations.put(token, compilation);
+		return compilation;
+	}
+
+	public void finish(final Compilation compilation) {
+		compilations.remove(compilation.token);
+	}
+
+	@Override
+	public String canonicalize(final String url, final boolean fromImport) throws Exception {
+		final URI parsed = parse(url);
+		if (parsed == null) {
+			return null;
+		}
+		final Compilation compilation = compilations.get(parsed.getHost());
+		if (compilation == null) {
+			return null;
+		}
+		final String path = normalize(parsed.getPath());
+		if (path.equals(compilation.entryUri)) {
+			return toUrl(compilation.token, path);
+		}
+		for (final String candidate : getCandidates(path)) {
+			if (compilation.modules.containsKey(candidate) || locate(compilation, candidate)) {
+				return toUrl(compilation.token, candidate);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public ImportSuccess handleImport(final String url) throws Exception {
+		final URI parsed = parse(url);
+		final Compilation compilation = parsed == null ? null : compilations.get(parsed.getHost());
+		if (compilation == null) {
+			return null;
+		}
+		final String path = parsed.getPath();
+		String content = compilation.modules.get(path);
+		if (content == null && locate(compilation, path)) {
+			content = compilation.modules.get(path);
+		}
+		if (content == null) {
+			return null;
+		}
+		final Syntax syntax = "css".equals(FilenameUtils.getExtension(path)) ? Syntax.CSS : Syntax.SCSS;
+		return ImportSuccess.newBuilder().setContents(content).setSyntax(syntax).build();
+	}
+
+	/**
+	 * Loads the resource through the wro4j locators, using the context of the
+	 * compilation when the current thread has none.
+	 *
+	 * @return true if the resource exists, its content is then kept by the
+	 *         compilation.
+	 */
+	private boolean locate(final Compilation compilation, final String uri) {
+		final boolean setContext = !Context.isContextSet() && compilation.context != null;
+		if (setContext) {
+			Context.set(compilation.context);
+		}
+		try {
+			final InputStream input = uriLocatorFactory.locate(uri);
+			try {
+				compilation.modules.put(uri, IOUtils.toString(input, StandardCharsets.UTF_8));
+			} finally {
+				input.close();
+			}
+			return true;
+		} catch (final IOException e) {
+			LOG.trace("Sass module candidate not found: {}", uri);
+			return false;
+		} finally {
+			if (setContext) {
+				Context.unset();
+			}
+		}
+	}
+
+	private static List<String> getCandidates(final String path) {
+		final List<String> candidates = new ArrayList<String>();
+		final String folder = FilenameUtils.getFullPath(path);
+		final String name = FilenameUtils.getName(path);
+		final String extension = FilenameUtils.getExtension(name);
+		if ("scss".equals(extension) || "css".equals(extension)) {
+			candidates.add(path);
+			if (!name.startsWith("_")) {
+				candidates.add(folder + "_" + name);
+			}
+			return candidates;
+		}
+		candidates.add(path + ".scss");
+		if (!name.startsWith("_")) {
+			candidates.add(folder + "_" + name + ".scss");
+		}
+		candidates.add(path + "/_index.scss");
+		candidates.add(path + "/index.scss");
+		candidates.add(path + ".css");
+		return candidates;
+	}
+
+	private static URI parse(final String url) {
+		if (!url.startsWith(SCHEME + "://")) {
+			return null;
+		}
+		try {
+			return new URI(url);
+		} catch (final URISyntaxException e) {
+			LOG.debug("Invalid Sass module url: {}", url);
+			return null;
+		}
+	}
+
+	private static String normalize(final String uri) {
+		final String path = FilenameUtils.normalizeNoEndSeparator(uri, true);
+		return path == null ? uri : path.startsWith("/") ? path : "/" + path;
+	}
+
+	private static String toUrl(final String token, final String uri) {
+		try {
+			// encodes the characters not allowed in an url
+			return new URI(SCHEME, token, uri, null).toString();
+		} catch (final URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid resource uri: " + uri, e);
+		}
+	}
+}
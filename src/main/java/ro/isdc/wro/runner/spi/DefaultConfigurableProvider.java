@@ -8,6 +8,7 @@ import ro.isdc.wro.model.resource.processor.ResourcePostProcessor;
 import ro.isdc.wro.model.resource.processor.ResourcePreProcessor;
 import ro.isdc.wro.runner.processor.RunnerCSSCompressorProcessor;
 import ro.isdc.wro.runner.processor.RunnerCSSImportProcessor;
+import ro.isdc.wro.runner.processor.RunnerCSSMinifierProcessor;
 import ro.isdc.wro.runner.processor.RunnerCssLintProcessor;
 import ro.isdc.wro.runner.processor.RunnerJsHintProcessor;
 import ro.isdc.wro.runner.processor.RunnerJsLintProcessor;
@@ -31,6 +32,7 @@ public class DefaultConfigurableProvider extends ConfigurableProviderSupport {
 		final Map<String, ResourcePostProcessor> map = super.providePostProcessors();
 		map.put(RunnerSCSSProcessor.ALIAS, new RunnerSCSSProcessor());
 		map.put(RunnerCSSCompressorProcessor.ALIAS, new RunnerCSSCompressorProcessor());
+		map.put(RunnerCSSMinifierProcessor.ALIAS, new RunnerCSSMinifierProcessor());
 		return map;
 	}
 }
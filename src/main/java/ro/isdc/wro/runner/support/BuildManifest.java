@@ -0,0 +1,312 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers, for each processed group, the inputs it was built from and the
+ * file it produced. Used by the incremental mode to process only the groups
+ * whose inputs changed since the previous run. The manifest is stored as a
+ * properties file inside the destination folder.
+ * <p/>
+ * An input is considered unchanged when its last modified time and length are
+ * the same as recorded, otherwise its SHA-1 hash is compared. Inputs are
+ * recorded per group, so that a partial shared by several groups is compared
+ * with the version each group was built from. Inputs which
+ * cannot be mapped to a file of the context folder (wildcards, classpath or
+ * url resources) cannot be tracked, so groups declaring them are always
+ * processed.
+ *
+ * @author Ricardo Nunes
+ */
+public class BuildManifest {
+	private static final Logger LOG = LoggerFactory.getLogger(BuildManifest.class);
+	public static final String FILE_NAME = ".wro4j-runner-manifest.properties";
+	private static final String KEY_CONFIGURATION = "configuration";
+	private static final String PREFIX_GROUP = "group.";
+	private static final String INFIX_INPUT = ".input.";
+	private static final String SUFFIX_RESOURCES = ".resources";
+	private static final String SUFFIX_INPUTS = ".inputs";
+	private static final String SUFFIX_OUTPUT = ".output";
+	private static final String SUFFIX_FAILED = ".failed";
+	private static final String SEPARATOR = ",";
+	private static final String MISSING = "missing";
+
+	private final File manifestFile;
+	private final File contextFolder;
+	private final File destinationFolder;
+	private final Properties properties = new Properties();
+
+	/**
+	 * @param configuration fingerprint of the processing configuration, all
+	 *                      recorded groups are discarded when it changes.
+	 */
+	public BuildManifest(final File contextFolder, final File destinationFolder, final String configuration) {
+		this.contextFolder = contextFolder;
+		this.destinationFolder = destinationFolder;
+		this.manifestFile = new File(destinationFolder, FILE_NAME);
+		load();
+		if (!configuration.equals(properties.getProperty(KEY_CONFIGURATION))) {
+			if (!properties.isEmpty()) {
+				LOG.info("Processing configuration changed, all groups will be processed");
+			}
+			properties.clear();
+			properties.setProperty(KEY_CONFIGURATION, configuration);
+		}
+	}
+
+	/**
+	 * @param group             the group name with extension.
+	 * @param declaredResources uri of resources declared by the group in the
+	 *                          model.
+	 * @return true if none of the inputs of the group changed since it was last
+	 *         processed and its output is still available.
+	 */
+	public synchronized boolean isUpToDate(final String group, final List<String> declaredResources) {
+		final String recordedResources = properties.getProperty(PREFIX_GROUP + group + SUFFIX_RESOURCES);
+		if (recordedResources == null || !recordedResources.equals(join(declaredResources))
+				|| properties.containsKey(PREFIX_GROUP + group + SUFFIX_FAILED)) {
+			return false;
+		}
+		for (final String uri : declaredResources) {
+			if (toFile(uri) == null) {
+				return false;
+			}
+		}
+		final String output = properties.getProperty(PREFIX_GROUP + group + SUFFIX_OUTPUT, StringUtils.EMPTY);
+		if (!output.isEmpty() && !new File(destinationFolder, output).isFile()) {
+			return false;
+		}
+		for (final String uri : split(properties.getProperty(PREFIX_GROUP + group + SUFFIX_INPUTS))) {
+			if (isChanged(group, uri)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param uris the uri of changed files of the context folder.
+	 * @return the group names (with extension) having any of the uris as input,
+	 *         or declaring a wildcard resource which may match any of them.
+	 */
+	public synchronized Set<String> getGroupsAffectedBy(final Collection<String> uris) {
+		final Set<String> groups = new LinkedHashSet<String>();
+		for (final String key : properties.stringPropertyNames()) {
+			if (key.startsWith(PREFIX_GROUP) && key.endsWith(SUFFIX_RESOURCES) && !isInputKey(key)) {
+				final String group = key.substring(PREFIX_GROUP.length(), key.length() - SUFFIX_RESOURCES.length());
+				final List<String> inputs = split(properties.getProperty(PREFIX_GROUP + group + SUFFIX_INPUTS));
+				for (final String uri : uris) {
+					if (inputs.contains(uri) || matchesWildcard(split(properties.getProperty(key)), uri)) {
+						groups.add(group);
+						break;
+					}
+				}
+			}
+		}
+		return groups;
+	}
+
+	/**
+	 * @return the uri of the resources the group was last processed from,
+	 *         imports included, or null if the group was never recorded.
+	 */
+	public synchronized List<String> getInputs(final String group) {
+		final String inputs = properties.getProperty(PREFIX_GROUP + group + SUFFIX_INPUTS);
+		return inputs == null ? null : split(inputs);
+	}
+
+	/**
+	 * A cheap approximation of wildcard matching: the part of the wildcard uri
+	 * before the first wildcard character must be a prefix of the uri.
+	 */
+	private boolean matchesWildcard(final List<String> declaredResources, final String uri) {
+		for (final String resource : declaredResources) {
+			final int wildcardIndex = StringUtils.indexOfAny(resource, "*?");
+			if (wildcardIndex >= 0 && uri.startsWith(resource.substring(0, wildcardIndex))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records the inputs of a successfully processed group.
+	 *
+	 * @param output the name of the created file relative to the destination
+	 *               folder or an empty string if the group had no content.
+	 */
+	public synchronized void update(final String group, final List<String> declaredResources,
+			final Collection<String> inputs, final String output) {
+		final Set<String> allInputs = new LinkedHashSet<String>(declaredResources);
+		allInputs.addAll(inputs);
+		for (final String uri : split(properties.getProperty(PREFIX_GROUP + group + SUFFIX_INPUTS))) {
+			properties.remove(getInputKey(group, uri));
+		}
+		properties.setProperty(PREFIX_GROUP + group + SUFFIX_RESOURCES, join(declaredResources));
+		properties.setProperty(PREFIX_GROUP + group + SUFFIX_INPUTS, join(allInputs));
+		properties.setProperty(PREFIX_GROUP + group + SUFFIX_OUTPUT, output);
+		properties.remove(PREFIX_GROUP + group + SUFFIX_FAILED);
+		for (final String uri : allInputs) {
+			properties.setProperty(getInputKey(group, uri), fingerprint(uri, null));
+		}
+	}
+
+	/**
+	 * Records the inputs known for a group which failed to be processed, so that
+	 * it is processed again on next run or as soon as any of its inputs changes.
+	 */
+	public synchronized void markFailed(final String group, final List<String> declaredResources,
+			final Collection<String> inputs) {
+		update(group, declaredResources, inputs, StringUtils.EMPTY);
+		properties.setProperty(PREFIX_GROUP + group + SUFFIX_FAILED, Boolean.TRUE.toString());
+	}
+
+	/**
+	 * Marks an already recorded group as failed, e.g. when linting found errors
+	 * after it was processed, so that it is processed again on next run.
+	 */
+	public synchronized void markFailed(final String group) {
+		properties.setProperty(PREFIX_GROUP + group + SUFFIX_FAILED, Boolean.TRUE.toString());
+	}
+
+	public synchronized void save() {
+		try {
+			FileUtils.forceMkdir(destinationFolder);
+			final OutputStream out = new FileOutputStream(manifestFile);
+			try {
+				properties.store(out, "wro4j-runner incremental build manifest");
+			} finally {
+				out.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Cannot write the build manifest: {}", manifestFile, e);
+		}
+	}
+
+	/**
+	 * @return the file of the context folder identified by the uri, or null if
+	 *         the uri cannot be mapped to a file.
+	 */
+	public File toFile(final String uri) {
+		return toFile(contextFolder, uri);
+	}
+
+	/**
+	 * @return the file of the context folder identified by the uri, or null if
+	 *         the uri cannot be mapped to a file.
+	 */
+	public static File toFile(final File contextFolder, final String uri) {
+		if (!uri.startsWith("/") || uri.contains("*") || uri.contains("?")) {
+			return null;
+		}
+		return new File(contextFolder, uri);
+	}
+
+	/**
+	 * @return the key of the fingerprint of an input, as the group was last
+	 *         built from it.
+	 */
+	private static String getInputKey(final String group, final String uri) {
+		return PREFIX_GROUP + group + INFIX_INPUT + uri;
+	}
+
+	/**
+	 * Input uris start with a slash, so no group name has the infix followed by
+	 * one.
+	 */
+	private static boolean isInputKey(final String key) {
+		return key.contains(INFIX_INPUT + "/");
+	}
+
+	private boolean isChanged(final String group, final String uri) {
+		final String recorded = properties.getProperty(getInputKey(group, uri));
+		if (recorded == null || toFile(uri) == null) {
+			return true;
+		}
+		final String current = fingerprint(uri, recorded);
+		if (current.equals(recorded)) {
+			return false;
+		}
+		// only the modification time changed, the content is the same
+		if (hashOf(current).equals(hashOf(recorded))) {
+			properties.setProperty(getInputKey(group, uri), current);
+			return false;
+		}
+		LOG.debug("Changed input: {}", uri);
+		return true;
+	}
+
+	/**
+	 * @param recorded previously recorded fingerprint, reused when the file was
+	 *                 not modified to avoid hashing its content.
+	 * @return a value composed of last modified time, length and hash of the
+	 *         file identified by the uri.
+	 */
+	private String fingerprint(final String uri, final String recorded) {
+		final File file = toFile(uri);
+		if (file == null || !file.isFile()) {
+			return MISSING;
+		}
+		final String prefix = file.lastModified() + SEPARATOR + file.length() + SEPARATOR;
+		if (recorded != null && recorded.startsWith(prefix)) {
+			return recorded;
+		}
+		try {
+			return prefix + HashUtils.hashFile(file, HashUtils.SHA_1);
+		} catch (final IOException e) {
+			LOG.debug("Cannot hash input: {}", file, e);
+			return MISSING;
+		}
+	}
+
+	private String hashOf(final String fingerprint) {
+		return StringUtils.substringAfterLast(fingerprint, SEPARATOR);
+	}
+
+	private void load() {
+		if (!manifestFile.isFile()) {
+			return;
+		}
+		try {
+			final InputStream input = new FileInputStream(manifestFile);
+			try {
+				properties.load(input);
+			} finally {
+				input.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Cannot read the build manifest, all groups will be processed: {}", manifestFile, e);
+			properties.clear();
+		}
+	}
+
+	private static String join(final Collection<String> values) {
+		return StringUtils.join(values, SEPARATOR);
+	}
+
+	private static List<String> split(final String value) {
+		final List<String> values = new ArrayList<String>();
+		if (value != null) {
+			for (final String item : StringUtils.split(value, SEPARATOR)) {
+				values.add(item);
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,190 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ro.isdc.wro.model.resource.locator.UriLocator;
+import ro.isdc.wro.model.resource.locator.factory.UriLocatorFactory;
+
+/**
+ * Keeps the content of the context folder files located during a run, so that
+ * a file imported by several groups, linted and hashed is read once. Entries
+ * are keyed by canonical path and checked against the size and modification
+ * time of the file, so a changed file is read again; the least recently used
+ * entries are evicted once the cache is over its size.
+ * <p/>
+ * Files larger than {@link #MAP_THRESHOLD} can be memory mapped instead of
+ * being copied on the heap. A mapping stays open as long as its entry is
+ * cached, which prevents editors from replacing the file on Windows and fails
+ * reads of a file truncated in the meantime, so mapping is meant for single
+ * runs only. Other uris (classpath, urls, wildcards) are located by the
+ * decorated factory every time.
+ *
+ * @author Ricardo Nunes
+ */
+public class CachingUriLocatorFactory implements UriLocatorFactory {
+	private static final Logger LOG = LoggerFactory.getLogger(CachingUriLocatorFactory.class);
+	static final int MAP_THRESHOLD = 256 * 1024;
+
+	private final UriLocatorFactory decorated;
+	private final File contextFolder;
+	private final long maxSize;
+	private final boolean mapLargeFiles;
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long size;
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong bytesSaved = new AtomicLong();
+
+	/**
+	 * @param maxSize       the maximum number of bytes kept by the cache.
+	 * @param mapLargeFiles true to memory map the files larger than
+	 *                      {@link #MAP_THRESHOLD}, false to read them on the
+	 *                      heap (e.g. when the files are edited meanwhile).
+	 */
+	public CachingUriLocatorFactory(final UriLocatorFactory decorated, final File contextFolder, final long maxSize,
+			final boolean mapLargeFiles) {
+		Validate.notNull(decorated);
+		Validate.isTrue(maxSize > 0, "Cache size must be positive, but was: %s", maxSize);
+		this.decorated = decorated;
+		this.contextFolder = contextFolder;
+		this.maxSize = maxSize;
+		this.mapLargeFiles = mapLargeFiles;
+	}
+
+	private static class Entry {
+		private final long lastModified;
+		private final ByteBuffer content;
+
+		Entry(final long lastModified, final ByteBuffer content) {
+			this.lastModified = lastModified;
+			this.content = content;
+		}
+	}
+
+	@Override
+	public InputStream locate(final String uri) throws IOException {
+		final File file = BuildManifest.toFile(contextFolder, uri);
+		if (file == null || !file.isFile()) {
+			return decorated.locate(uri);
+		}
+		final String key = file.getCanonicalPath();
+		final long lastModified = file.lastModified();
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (entry != null && entry.lastModified == lastModified && entry.content.capacity() == file.length()) {
+			bytesSaved.addAndGet(entry.content.remaining());
+		} else {
+			entry = new Entry(lastModified, read(file));
+			bytesRead.addAndGet(entry.content.remaining());
+			put(key, entry);
+		}
+		return newInputStream(entry.content.duplicate());
+	}
+
+	/**
+	 * Identifies the content of a context folder file by its canonical path,
+	 * size and modification time, without reading it.
+	 *
+	 * @return the version of the file, or null if the uri is not a context folder
+	 *         file.
+	 */
+	public String getVersion(final String uri) throws IOException {
+		final File file = BuildManifest.toFile(contextFolder, uri);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		return file.getCanonicalPath() + "|" + file.length() + "|" + file.lastModified();
+	}
+
+	@Override
+	public UriLocator getInstance(final String uri) {
+		return decorated.getInstance(uri);
+	}
+
+	/**
+	 * Logs the bytes read from disk and the bytes served from the cache since
+	 * the previous call.
+	 */
+	public void logAndReset() {
+		LOG.info("resource cache: {} bytes read, {} bytes saved", bytesRead.getAndSet(0), bytesSaved.getAndSet(0));
+	}
+
+	private synchronized void put(final String key, final Entry entry) {
+		final Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			size -= previous.content.capacity();
+		}
+		size += entry.content.capacity();
+		final Iterator<Entry> iterator = entries.values().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			final Entry eldest = iterator.next();
+			size -= eldest.content.capacity();
+			iterator.remove();
+		}
+	}
+
+	private ByteBuffer read(final File file) throws IOException {
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			final long length = channel.size();
+			if (mapLargeFiles && length > MAP_THRESHOLD) {
+				// the mapping stays valid after the channel is closed
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			}
+			final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// read until full or end of file
+			}
+			buffer.flip();
+			return buffer;
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static InputStream newInputStream(final ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(),
+					buffer.remaining());
+		}
+		return new InputStream() {
+			@Override
+			public int read() {
+				return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+			}
+
+			@Override
+			public int read(final byte[] bytes, final int offset, final int length) {
+				if (length == 0) {
+					return 0;
+				}
+				if (!buffer.hasRemaining()) {
+					return -1;
+				}
+				final int count = Math.min(length, buffer.remaining());
+				buffer.get(bytes, offset, count);
+				return count;
+			}
+
+			@Override
+			public int available() {
+				return buffer.remaining();
+			}
+		};
+	}
+}
@@ -0,0 +1,51 @@
+package ro.isdc.wro.runner.support;
+
+import ro.isdc.wro.model.WroModel;
+import ro.isdc.wro.model.factory.WroModelFactory;
+import ro.isdc.wro.model.factory.WroModelFactoryDecorator;
+
+/**
+ * Creates the model once and returns the same instance, in watch mode a new
+ * factory is created when the model changes. Safe to use from concurrent
+ * threads. When a {@link ModelCache} is given, the model is read from it
+ * instead of being created whenever the model files did not change.
+ *
+ * @author Ricardo Nunes
+ */
+public class CachingWroModelFactory extends WroModelFactoryDecorator {
+	private final ModelCache modelCache;
+	private volatile WroModel model;
+
+	public CachingWroModelFactory(final WroModelFactory decorated) {
+		this(decorated, null);
+	}
+
+	/**
+	 * @param modelCache stores the model between runs, may be null.
+	 */
+	public CachingWroModelFactory(final WroModelFactory decorated, final ModelCache modelCache) {
+		super(decorated);
+		this.modelCache = modelCache;
+	}
+
+	@Override
+	public WroModel create() {
+		WroModel result = model;
+		if (result == null) {
+			synchronized (this) {
+				result = model;
+				if (result == null) {
+					result = modelCache == null ? null : modelCache.load();
+					if (result == null) {
+						result = super.create();
+						if (modelCache != null) {
+							modelCache.save(result);
+						}
+					}
+					model = result;
+				}
+			}
+		}
+		return result;
+	}
+}
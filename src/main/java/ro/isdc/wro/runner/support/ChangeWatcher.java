@@ -0,0 +1,153 @@
+package ro.isdc.wro.runner.support;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches folders for file changes using a {@link WatchService}. Bursts of
+ * events (like an editor saving several files) are debounced and reported at
+ * once.
+ *
+ * @author Ricardo Nunes
+ */
+public class ChangeWatcher implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(ChangeWatcher.class);
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> folders = new ConcurrentHashMap<WatchKey, Path>();
+	private final List<Path> excludedFolders = new ArrayList<Path>();
+	private final long debounceMillis;
+
+	/**
+	 * @param excludedFolders folders (like the destination folder) whose changes
+	 *                        are ignored.
+	 */
+	public ChangeWatcher(final Collection<File> excludedFolders, final long debounceMillis) throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.debounceMillis = debounceMillis;
+		for (final File folder : excludedFolders) {
+			this.excludedFolders.add(folder.getAbsoluteFile().toPath().normalize());
+		}
+	}
+
+	/**
+	 * Watches the folder and all its sub folders, including the ones created
+	 * later.
+	 */
+	public void watchTree(final File folder) throws IOException {
+		final Path root = folder.getAbsoluteFile().toPath().normalize();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+				if (isExcluded(dir)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				watch(dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Watches the folder only, without its sub folders.
+	 */
+	public void watch(final File folder) throws IOException {
+		watch(folder.getAbsoluteFile().toPath().normalize());
+	}
+
+	private void watch(final Path folder) throws IOException {
+		if (!folders.containsValue(folder)) {
+			folders.put(folder.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), folder);
+		}
+	}
+
+	/**
+	 * Blocks until at least one change happens, then waits until no other event
+	 * arrives during the debounce period.
+	 *
+	 * @return the changed files. When events were lost, the folder in which they
+	 *         happened is reported instead.
+	 */
+	public Set<File> awaitChanges() throws InterruptedException {
+		final Set<File> changes = new LinkedHashSet<File>();
+		WatchKey key = watchService.take();
+		while (key != null) {
+			collect(key, changes);
+			key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+		}
+		return changes;
+	}
+
+	private void collect(final WatchKey key, final Set<File> changes) {
+		final Path folder = folders.get(key);
+		if (folder != null) {
+			for (final WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					changes.add(folder.toFile());
+					continue;
+				}
+				final Path changed = folder.resolve((Path) event.context());
+				if (isExcluded(changed)) {
+					continue;
+				}
+				if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+					try {
+						watchTree(changed.toFile());
+					} catch (final IOException e) {
+						LOG.warn("Cannot watch folder: {}", changed, e);
+					}
+				}
+				changes.add(changed.toFile());
+			}
+		}
+		if (!key.reset()) {
+			folders.remove(key);
+		}
+	}
+
+	private boolean isExcluded(final Path path) {
+		for (final Path excluded : excludedFolders) {
+			if (path.startsWith(excluded)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+}
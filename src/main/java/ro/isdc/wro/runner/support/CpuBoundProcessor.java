@@ -0,0 +1,58 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.processor.decorator.ProcessorDecorator;
+import ro.isdc.wro.runner.processor.RunnerCssLintProcessor;
+import ro.isdc.wro.runner.processor.RunnerJsHintProcessor;
+import ro.isdc.wro.runner.processor.RunnerJsLintProcessor;
+
+/**
+ * Limits the number of concurrent calls of a CPU heavy processor using a
+ * semaphore shared by all such processors. Used when groups are processed on
+ * virtual threads, so that many groups can wait on IO at the same time while
+ * at most one compressor or linter per core is running.
+ *
+ * @author Ricardo Nunes
+ */
+public class CpuBoundProcessor extends ProcessorDecorator {
+	private static final Collection<String> LINT_ALIASES = Arrays.asList(RunnerCssLintProcessor.ALIAS,
+			RunnerJsLintProcessor.ALIAS, RunnerJsHintProcessor.ALIAS);
+
+	private final Semaphore permits;
+
+	public CpuBoundProcessor(final Object processor, final Semaphore permits) {
+		super(processor);
+		this.permits = permits;
+	}
+
+	/**
+	 * @return true for minimizing processors, such as Closure or YUI, and for
+	 *         linters.
+	 */
+	public static boolean isCpuBound(final String alias, final Object processor) {
+		return LINT_ALIASES.contains(alias) || new ProcessorDecorator(processor).isMinimize();
+	}
+
+	@Override
+	public void process(final Resource resource, final Reader reader, final Writer writer) throws IOException {
+		try {
+			permits.acquire();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a CPU permit");
+		}
+		try {
+			super.process(resource, reader, writer);
+		} finally {
+			permits.release();
+		}
+	}
+}
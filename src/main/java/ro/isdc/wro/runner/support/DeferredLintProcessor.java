@@ -0,0 +1,55 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.commons.io.IOUtils;
+
+import ro.isdc.wro.config.Context;
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.processor.decorator.ProcessorDecorator;
+
+/**
+ * Passes the content through unchanged and hands it to a {@link LintQueue},
+ * so that the group does not wait for the decorated linter.
+ *
+ * @author Ricardo Nunes
+ */
+public class DeferredLintProcessor extends ProcessorDecorator {
+	private final String alias;
+	private final Object linter;
+	private final LintQueue lintQueue;
+
+	public DeferredLintProcessor(final Object linter, final String alias, final LintQueue lintQueue) {
+		super(linter);
+		this.alias = alias;
+		this.linter = linter;
+		this.lintQueue = lintQueue;
+	}
+
+	@Override
+	public void process(final Resource resource, final Reader reader, final Writer writer) throws IOException {
+		try {
+			final String content = IOUtils.toString(reader);
+			writer.write(content);
+			final String group = getGroup();
+			lintQueue.submit(alias, linter, resource, group, resource == null ? group : resource.getUri(), content);
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return the group being processed, with extension.
+	 */
+	private static String getGroup() {
+		return Context.isContextSet() ? Context.get().getRequest().getRequestURI() : "";
+	}
+
+	@Override
+	public String toString() {
+		return alias;
+	}
+}
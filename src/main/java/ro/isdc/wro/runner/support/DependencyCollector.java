@@ -0,0 +1,70 @@
+package ro.isdc.wro.runner.support;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ro.isdc.wro.config.Context;
+import ro.isdc.wro.model.resource.ResourceType;
+import ro.isdc.wro.model.resource.SupportedResourceType;
+import ro.isdc.wro.runner.processor.RunnerCSSImportProcessor;
+
+/**
+ * Collects the resources imported while a group is processed. Imports are
+ * correlated to the group using the {@link Context} correlation id, which is
+ * propagated to the threads used for parallel pre processing.
+ *
+ * @author Ricardo Nunes
+ */
+public class DependencyCollector {
+	private final Map<String, Set<String>> importsByCorrelationId = new ConcurrentHashMap<String, Set<String>>();
+
+	/**
+	 * Starts collecting the imports for the context set on the current thread.
+	 */
+	public void start() {
+		importsByCorrelationId.put(Context.getCorrelationId(),
+				Collections.synchronizedSet(new LinkedHashSet<String>()));
+	}
+
+	/**
+	 * Stops collecting the imports for the context set on the current thread.
+	 *
+	 * @return the uri of all resources imported since {@link #start()}.
+	 */
+	public Set<String> finish() {
+		final Set<String> imports = importsByCorrelationId.remove(Context.getCorrelationId());
+		return imports == null ? Collections.<String> emptySet() : imports;
+	}
+
+	public void onImport(final String importUri) {
+		final Set<String> imports = importsByCorrelationId.get(Context.getCorrelationId());
+		if (imports != null) {
+			imports.add(importUri);
+		}
+	}
+
+	/**
+	 * @return a {@link RunnerCSSImportProcessor} reporting every import detected
+	 *         to this collector.
+	 */
+	public RunnerCSSImportProcessor newImportProcessor() {
+		return new CollectingCSSImportProcessor(this);
+	}
+
+	@SupportedResourceType(ResourceType.CSS)
+	private static class CollectingCSSImportProcessor extends RunnerCSSImportProcessor {
+		private final DependencyCollector collector;
+
+		CollectingCSSImportProcessor(final DependencyCollector collector) {
+			this.collector = collector;
+		}
+
+		@Override
+		protected void onImportDetected(final String foundImportUri) {
+			collector.onImport(foundImportUri);
+		}
+	}
+}
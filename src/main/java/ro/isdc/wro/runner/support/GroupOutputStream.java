@@ -0,0 +1,228 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Streams the result of a group to a temporary file through a
+ * {@link FileChannel}, computing its digest while the bytes pass through. Once
+ * closed, the temporary file can be read back (e.g. by a naming strategy, which
+ * gets the digest along) and moved atomically in place. This avoids holding the whole group result in
+ * memory.
+ *
+ * @author Ricardo Nunes
+ */
+public class GroupOutputStream extends OutputStream {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String TEMP_FILE_PREFIX = ".wro4j-";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private final Path tempFile;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final MessageDigest digest = HashUtils.newDigest(HashUtils.SHA_1);
+	private long size;
+	private byte[] sha1;
+	private String hash;
+	private boolean closed;
+
+	/**
+	 * @param folder where the temporary file is created, should be on the same
+	 *               file system as the final destination to allow an atomic
+	 *               move.
+	 */
+	public GroupOutputStream(final Path folder) throws IOException {
+		// unlike Files.createTempFile, keeps the default permissions of new files
+		tempFile = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX, folder.toFile()).toPath();
+		channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (!buffer.hasRemaining()) {
+			flushBuffer();
+		}
+		buffer.put((byte) b);
+		digest.update((byte) b);
+		size++;
+	}
+
+	@Override
+	public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+		digest.update(bytes, offset, length);
+		size += length;
+		if (length >= buffer.capacity()) {
+			flushBuffer();
+			writeFully(ByteBuffer.wrap(bytes, offset, length));
+		} else {
+			if (length > buffer.remaining()) {
+				flushBuffer();
+			}
+			buffer.put(bytes, offset, length);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			try {
+				flushBuffer();
+			} finally {
+				channel.close();
+			}
+			sha1 = digest.digest();
+			hash = HashUtils.toHex(sha1);
+		}
+	}
+
+	/**
+	 * @return the number of bytes written.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the hex encoded SHA-1 of the written bytes, available after
+	 *         {@link #close()}.
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * Compares the written content with an existing file: the sizes first, then
+	 * the SHA-1 of the file, which is read only when the sizes are equal.
+	 *
+	 * @return true if the file exists and has the same content.
+	 */
+	public boolean hasSameContent(final Path file) throws IOException {
+		close();
+		if (!Files.isRegularFile(file) || Files.size(file) != size) {
+			return false;
+		}
+		return hash.equals(HashUtils.hashFile(file.toFile(), HashUtils.SHA_1));
+	}
+
+	/**
+	 * Closes the stream if needed.
+	 *
+	 * @return a stream reading the written content back.
+	 */
+	public ResultInputStream newInputStream() throws IOException {
+		close();
+		return new ResultInputStream(tempFile, sha1);
+	}
+
+	/**
+	 * Moves the written content to its destination, replacing any existing
+	 * file. The move is atomic when the file system supports it.
+	 */
+	public void moveTo(final Path destination) throws IOException {
+		close();
+		try {
+			Files.move(tempFile, destination, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Closes the stream and deletes the temporary file if it was not moved.
+	 */
+	public void discard() throws IOException {
+		try {
+			close();
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Reads the written content back, the temporary file being opened only when
+	 * first read. Holds the SHA-1 computed while writing, so that a hash
+	 * strategy does not need to read the content again.
+	 */
+	public static class ResultInputStream extends InputStream {
+		private final Path file;
+		private final byte[] sha1;
+		private InputStream input;
+
+		private ResultInputStream(final Path file, final byte[] sha1) {
+			this.file = file;
+			this.sha1 = sha1;
+		}
+
+		/**
+		 * @return the SHA-1 digest of the content.
+		 */
+		public byte[] getSha1() {
+			return sha1.clone();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return getInput().read();
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+			return getInput().read(bytes, offset, length);
+		}
+
+		@Override
+		public long skip(final long count) throws IOException {
+			return getInput().skip(count);
+		}
+
+		@Override
+		public int available() throws IOException {
+			return getInput().available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (input != null) {
+				input.close();
+			}
+		}
+
+		private InputStream getInput() throws IOException {
+			if (input == null) {
+				input = new BufferedInputStream(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)),
+						BUFFER_SIZE);
+			}
+			return input;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(final ByteBuffer source) throws IOException {
+		while (source.hasRemaining()) {
+			channel.write(source);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers how long each group took to be processed, so that the next run
+ * can schedule the most expensive groups first. The durations are stored as a
+ * properties file inside the destination folder.
+ *
+ * @author Ricardo Nunes
+ */
+public class GroupTimings {
+	private static final Logger LOG = LoggerFactory.getLogger(GroupTimings.class);
+	public static final String FILE_NAME = ".wro4j-runner-timings.properties";
+	private static final long UNKNOWN = -1;
+
+	private final File timingsFile;
+	private final File destinationFolder;
+	private final Properties properties = new Properties();
+
+	public GroupTimings(final File destinationFolder) {
+		this.destinationFolder = destinationFolder;
+		this.timingsFile = new File(destinationFolder, FILE_NAME);
+		load();
+	}
+
+	/**
+	 * @param group the group name with extension.
+	 * @return the duration in milliseconds recorded for the group, or -1 if
+	 *         unknown.
+	 */
+	public synchronized long getDuration(final String group) {
+		return NumberUtils.toLong(properties.getProperty(group), UNKNOWN);
+	}
+
+	/**
+	 * @param group    the group name with extension.
+	 * @param duration in milliseconds.
+	 */
+	public synchronized void record(final String group, final long duration) {
+		properties.setProperty(group, String.valueOf(duration));
+	}
+
+	/**
+	 * @return the groups ordered by decreasing recorded duration. Groups without
+	 *         a recorded duration come first, since they may be the most
+	 *         expensive ones. The order of the given collection is kept for
+	 *         groups with the same duration.
+	 */
+	public List<String> sortByCost(final Collection<String> groups) {
+		final List<String> sorted = new ArrayList<String>(groups);
+		Collections.sort(sorted, new Comparator<String>() {
+			@Override
+			public int compare(final String first, final String second) {
+				return compareCost(getDuration(first), getDuration(second));
+			}
+		});
+		return sorted;
+	}
+
+	public synchronized void save() {
+		try {
+			FileUtils.forceMkdir(destinationFolder);
+			final OutputStream out = new FileOutputStream(timingsFile);
+			try {
+				properties.store(out, "wro4j-runner group durations in milliseconds");
+			} finally {
+				out.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Cannot write the group timings: {}", timingsFile, e);
+		}
+	}
+
+	private static int compareCost(final long first, final long second) {
+		if (first == second) {
+			return 0;
+		}
+		if (first == UNKNOWN) {
+			return -1;
+		}
+		if (second == UNKNOWN) {
+			return 1;
+		}
+		return first > second ? -1 : 1;
+	}
+
+	private void load() {
+		if (!timingsFile.isFile()) {
+			return;
+		}
+		try {
+			final InputStream input = new FileInputStream(timingsFile);
+			try {
+				properties.load(input);
+			} finally {
+				input.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Cannot read the group timings: {}", timingsFile, e);
+			properties.clear();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Digest helpers used by the runner to fingerprint content.
+ *
+ * @author Ricardo Nunes
+ */
+public final class HashUtils {
+	public static final String SHA_256 = "SHA-256";
+	public static final String SHA_1 = "SHA-1";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private HashUtils() {
+	}
+
+	/**
+	 * @return a new {@link MessageDigest} for an algorithm every JVM supports.
+	 */
+	public static MessageDigest newDigest(final String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Unsupported digest algorithm: " + algorithm, e);
+		}
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 of the UTF-8 encoded parts, each part
+	 *         being separated by a NUL character.
+	 */
+	public static String sha256Hex(final String... parts) {
+		final MessageDigest digest = newDigest(SHA_256);
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				digest.update((byte) 0);
+			}
+			digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @return the hex encoded digest of the file content.
+	 */
+	public static String hashFile(final File file, final String algorithm) throws IOException {
+		return hashStream(new FileInputStream(file), algorithm);
+	}
+
+	/**
+	 * @return the hex encoded digest of the stream content. The stream is closed.
+	 */
+	public static String hashStream(final InputStream input, final String algorithm) throws IOException {
+		final MessageDigest digest = newDigest(algorithm);
+		try {
+			final byte[] buffer = new byte[8192];
+			int read = 0;
+			while ((read = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+		return toHex(digest.digest());
+	}
+
+	public static String toHex(final byte[] bytes) {
+		final char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,30 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import ro.isdc.wro.model.resource.support.hash.SHA1HashStrategy;
+
+/**
+ * The SHA-1 hash strategy used by the naming strategies, which takes the digest
+ * of a group result from its {@link GroupOutputStream.ResultInputStream}
+ * instead of reading the temporary file again. Any other stream is read and
+ * hashed as usual.
+ *
+ * @author Ricardo Nunes
+ */
+public class InlineDigestHashStrategy extends SHA1HashStrategy {
+	@Override
+	public String getHash(final InputStream input) throws IOException {
+		if (input instanceof GroupOutputStream.ResultInputStream) {
+			try {
+				// same encoding as the digester hash strategies
+				return new BigInteger(1, ((GroupOutputStream.ResultInputStream) input).getSha1()).toString(16);
+			} finally {
+				input.close();
+			}
+		}
+		return super.getHash(input);
+	}
+}
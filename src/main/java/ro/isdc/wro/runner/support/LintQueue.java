@@ -0,0 +1,239 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ro.isdc.wro.config.Context;
+import ro.isdc.wro.extensions.processor.css.CssLintProcessor;
+import ro.isdc.wro.extensions.processor.js.JsHintProcessor;
+import ro.isdc.wro.extensions.processor.js.JsLintProcessor;
+import ro.isdc.wro.extensions.processor.support.csslint.CssLintException;
+import ro.isdc.wro.extensions.processor.support.linter.LinterException;
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.processor.decorator.ProcessorDecorator;
+
+/**
+ * Lints resources on a bounded pool of threads, while the groups go on with
+ * the other processors. The results are cached by linter and content hash, so
+ * a resource shared by several groups (or unchanged between two rebuilds of
+ * the watch mode) is linted once.
+ * <p/>
+ * When the pool and its queue are full, the submitting group thread lints the
+ * resource itself, which bounds the content waiting in memory. All the results
+ * of a run are printed at once by {@link #awaitAndReport()}.
+ *
+ * @author Ricardo Nunes
+ */
+public class LintQueue {
+	private static final Logger LOG = LoggerFactory.getLogger(LintQueue.class);
+	private static final Collection<String> LINT_ALIASES = Arrays.asList(CssLintProcessor.ALIAS,
+			JsLintProcessor.ALIAS, JsHintProcessor.ALIAS);
+	/**
+	 * Resources waiting in the queue, per lint thread.
+	 */
+	private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+	private final ThreadPoolExecutor executor;
+	/**
+	 * Errors found by linter and content hash.
+	 */
+	private final ConcurrentMap<String, Future<List<String>>> cache = new ConcurrentHashMap<String, Future<List<String>>>();
+	/**
+	 * Results of the current run, by linter and resource uri.
+	 */
+	private final ConcurrentMap<String, Future<List<String>>> pending = new ConcurrentHashMap<String, Future<List<String>>>();
+	/**
+	 * Groups of the current run using each pending result.
+	 */
+	private final ConcurrentMap<String, Set<String>> pendingGroups = new ConcurrentHashMap<String, Set<String>>();
+	private final AtomicInteger cacheHits = new AtomicInteger();
+
+	public LintQueue(final int threads) {
+		Validate.isTrue(threads > 0, "Lint threads must be positive, but was: %s", threads);
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD), new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "lint-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * @return true if the processor registered with the alias is a linter.
+	 */
+	public static boolean isLinter(final String alias) {
+		return LINT_ALIASES.contains(alias);
+	}
+
+	/**
+	 * @return a linter reporting its errors by throwing, instead of printing
+	 *         them.
+	 */
+	public static Object newLinter(final String alias) {
+		if (CssLintProcessor.ALIAS.equals(alias)) {
+			return new CssLintProcessor() {
+				@Override
+				protected void onCssLintException(final CssLintException e, final Resource resource) {
+					throw e;
+				}
+			};
+		}
+		if (JsHintProcessor.ALIAS.equals(alias)) {
+			return new JsHintProcessor() {
+				@Override
+				protected void onLinterException(final LinterException e, final Resource resource) {
+					throw e;
+				}
+			};
+		}
+		if (JsLintProcessor.ALIAS.equals(alias)) {
+			return new JsLintProcessor() {
+				@Override
+				protected void onLinterException(final LinterException e, final Resource resource) {
+					throw e;
+				}
+			};
+		}
+		throw new IllegalArgumentException("Not a linter: " + alias);
+	}
+
+	/**
+	 * Queues the linting of the content, unless the same content was already
+	 * linted by this linter.
+	 *
+	 * @param group the group, with extension, being processed.
+	 * @param uri   identifies the content in the report.
+	 */
+	public void submit(final String alias, final Object linter, final Resource resource, final String group,
+			final String uri, final String content) {
+		final String key = alias + "#" + HashUtils.sha256Hex(content);
+		final FutureTask<List<String>> task = new FutureTask<List<String>>(newLintTask(linter, resource, content));
+		final Future<List<String>> cached = cache.putIfAbsent(key, task);
+		if (cached == null) {
+			executor.execute(task);
+		} else {
+			cacheHits.incrementAndGet();
+		}
+		final String pendingKey = alias + " " + uri;
+		pending.put(pendingKey, cached == null ? task : cached);
+		Set<String> groups = pendingGroups.get(pendingKey);
+		if (groups == null) {
+			final Set<String> newGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+			groups = pendingGroups.putIfAbsent(pendingKey, newGroups);
+			if (groups == null) {
+				groups = newGroups;
+			}
+		}
+		groups.add(group);
+	}
+
+	private Callable<List<String>> newLintTask(final Object linter, final Resource resource, final String content) {
+		final Context context = Context.isContextSet() ? Context.get() : null;
+		return new Callable<List<String>>() {
+			@Override
+			public List<String> call() throws Exception {
+				final boolean setContext = !Context.isContextSet() && context != null;
+				if (setContext) {
+					Context.set(context);
+				}
+				try {
+					new ProcessorDecorator(linter).process(resource, new StringReader(content), new StringWriter());
+					return Collections.emptyList();
+				} catch (final CssLintException e) {
+					return toStrings(e.getErrors());
+				} catch (final LinterException e) {
+					return toStrings(e.getErrors());
+				} finally {
+					if (setContext) {
+						Context.unset();
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Waits for the linting of all the submitted resources, prints the errors
+	 * and forgets the results of the run (the cache is kept).
+	 *
+	 * @return the groups, with extension, using a resource with lint errors.
+	 */
+	public Set<String> awaitAndReport() {
+		final Map<String, List<String>> results = new TreeMap<String, List<String>>();
+		for (final Map.Entry<String, Future<List<String>>> entry : pending.entrySet()) {
+			results.put(entry.getKey(), await(entry.getValue()));
+		}
+		final Set<String> failedGroups = new TreeSet<String>();
+		int errors = 0;
+		int failedResources = 0;
+		for (final Map.Entry<String, List<String>> entry : results.entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				failedResources++;
+				errors += entry.getValue().size();
+				failedGroups.addAll(pendingGroups.get(entry.getKey()));
+				System.err.println(entry.getKey() + " has " + entry.getValue().size() + " errors.");
+				for (final String error : entry.getValue()) {
+					System.err.println("  " + error);
+				}
+			}
+		}
+		LOG.info("lint: {} resources checked ({} cached), {} errors in {} resources", results.size(),
+				cacheHits.getAndSet(0), errors, failedResources);
+		pending.clear();
+		pendingGroups.clear();
+		return failedGroups;
+	}
+
+	private static List<String> await(final Future<List<String>> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Collections.singletonList("Interrupted while linting");
+		} catch (final ExecutionException e) {
+			LOG.debug("Lint failed", e.getCause());
+			return Collections.singletonList("Lint failed: " + e.getCause());
+		}
+	}
+
+	private static List<String> toStrings(final Collection<?> errors) {
+		final List<String> result = new ArrayList<String>(errors.size());
+		for (final Object error : errors) {
+			result.add(String.valueOf(error));
+		}
+		return result;
+	}
+
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,121 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits groups for processing only while the estimated memory of the groups
+ * in flight fits in a budget. A group larger than the whole budget is admitted
+ * alone, once every other group is done.
+ * <p/>
+ * The estimate of a group is the size of its resource files multiplied by
+ * {@link #IN_MEMORY_FACTOR}: the content is held as UTF-16 strings, and the
+ * import and Sass processors keep both their input and their output. Wildcard
+ * resources are expanded to the files of the context folder they may match.
+ * Resources which are not files of the context folder, e.g. classpath or url
+ * resources, are counted as {@link #UNKNOWN_RESOURCE_SIZE}.
+ *
+ * @author Ricardo Nunes
+ */
+public class MemoryBudget {
+	private static final Logger LOG = LoggerFactory.getLogger(MemoryBudget.class);
+	static final int IN_MEMORY_FACTOR = 4;
+	static final long UNKNOWN_RESOURCE_SIZE = 512 * 1024;
+
+	private final long maxBytes;
+	private final File contextFolder;
+	private long inFlightBytes;
+
+	public MemoryBudget(final long maxBytes, final File contextFolder) {
+		Validate.isTrue(maxBytes > 0, "Max in flight bytes must be positive, but was: %s", maxBytes);
+		this.maxBytes = maxBytes;
+		this.contextFolder = contextFolder;
+	}
+
+	/**
+	 * @param uris the resources of a group, preferably with the resources they
+	 *             import as recorded by the last build. May be null when
+	 *             unknown.
+	 * @return the estimated memory used to process the resources.
+	 */
+	public long estimate(final Collection<String> uris) {
+		if (uris == null) {
+			return UNKNOWN_RESOURCE_SIZE * IN_MEMORY_FACTOR;
+		}
+		long size = 0;
+		final Set<File> files = new LinkedHashSet<File>();
+		for (final String uri : uris) {
+			final File file = BuildManifest.toFile(contextFolder, uri);
+			if (file != null) {
+				files.add(file);
+			} else if (uri.startsWith("/")) {
+				files.addAll(expandWildcard(uri));
+			} else {
+				size += UNKNOWN_RESOURCE_SIZE;
+			}
+		}
+		for (final File file : files) {
+			size += file.length();
+		}
+		return size * IN_MEMORY_FACTOR;
+	}
+
+	/**
+	 * Over approximates the files matched by a wildcard uri: the files of the
+	 * folder before the first wildcard matching the last path segment, in any
+	 * sub folder when the wildcard spans folders.
+	 */
+	private Collection<File> expandWildcard(final String uri) {
+		final int wildcardIndex = StringUtils.indexOfAny(uri, "*?");
+		final String folderUri = uri.substring(0, uri.lastIndexOf('/', wildcardIndex) + 1);
+		final File folder = new File(contextFolder, folderUri);
+		if (!folder.isDirectory()) {
+			return Collections.emptyList();
+		}
+		final String pattern = uri.substring(folderUri.length());
+		final String namePattern = StringUtils.substringAfterLast("/" + pattern, "/");
+		final boolean recursive = pattern.contains("/") || pattern.contains("**");
+		return FileUtils.listFiles(folder, new WildcardFileFilter(namePattern.replace("**", "*")),
+				recursive ? TrueFileFilter.INSTANCE : null);
+	}
+
+	/**
+	 * Waits until the estimated bytes fit in the budget.
+	 *
+	 * @return the bytes taken from the budget, to {@link #release(long)} once the
+	 *         group is processed.
+	 */
+	public synchronized long acquire(final long estimate) throws InterruptedIOException {
+		final long bytes = Math.min(estimate, maxBytes);
+		if (estimate > maxBytes) {
+			LOG.info("Group estimated at {} bytes exceeds the in flight budget, processing it alone", estimate);
+		}
+		try {
+			while (inFlightBytes > 0 && inFlightBytes + bytes > maxBytes) {
+				wait();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for memory");
+		}
+		inFlightBytes += bytes;
+		return bytes;
+	}
+
+	public synchronized void release(final long bytes) {
+		inFlightBytes -= bytes;
+		notifyAll();
+	}
+}
@@ -0,0 +1,166 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ro.isdc.wro.model.WroModel;
+import ro.isdc.wro.model.group.Group;
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.ResourceType;
+
+/**
+ * Stores the parsed {@link WroModel} in a small binary file of the destination
+ * folder, so that the next run does not need to parse the model again (the
+ * Groovy DSL is slow to start).
+ * <p/>
+ * The cache is keyed by the path, size, modification time and SHA-1 of the
+ * model files. An xml model importing other models is never cached, since the
+ * imported files are not part of the key.
+ *
+ * @author Ricardo Nunes
+ */
+public class ModelCache {
+	private static final Logger LOG = LoggerFactory.getLogger(ModelCache.class);
+	static final String FILE_NAME = ".wro4j-runner-model.cache";
+	private static final int MAGIC = 0x7772346d;
+	private static final int VERSION = 1;
+	private static final String XML_IMPORT = "<import";
+
+	private final File cacheFile;
+	private final Collection<File> modelFiles;
+
+	/**
+	 * @param modelFiles the files the model may be created from, only the
+	 *                   existing ones are part of the key.
+	 */
+	public ModelCache(final File destinationFolder, final Collection<File> modelFiles) {
+		this.cacheFile = new File(destinationFolder, FILE_NAME);
+		this.modelFiles = modelFiles;
+	}
+
+	/**
+	 * @return the cached model, or null if the model files changed or the cache
+	 *         cannot be read.
+	 */
+	public WroModel load() {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		try {
+			final String key = computeKey();
+			if (key == null) {
+				return null;
+			}
+			final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			try {
+				if (input.readInt() != MAGIC || input.readInt() != VERSION || !key.equals(input.readUTF())) {
+					return null;
+				}
+				final WroModel model = readModel(input);
+				LOG.debug("Model loaded from cache: {}", cacheFile);
+				return model;
+			} finally {
+				input.close();
+			}
+		} catch (final Exception e) {
+			LOG.debug("Cannot read the model cache: {}", cacheFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the model, unless it cannot be keyed.
+	 */
+	public void save(final WroModel model) {
+		try {
+			final String key = computeKey();
+			if (key == null) {
+				Files.deleteIfExists(cacheFile.toPath());
+				return;
+			}
+			cacheFile.getParentFile().mkdirs();
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(cacheFile)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeUTF(key);
+				writeModel(model, output);
+			} finally {
+				output.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Cannot write the model cache: {}", cacheFile, e);
+		}
+	}
+
+	/**
+	 * @return the key of the existing model files, or null if the model cannot
+	 *         be cached.
+	 */
+	private String computeKey() throws IOException {
+		final StringBuilder key = new StringBuilder();
+		for (final File file : modelFiles) {
+			if (file.isFile()) {
+				if (isImporting(file)) {
+					LOG.debug("Model imports other models, not cached: {}", file);
+					return null;
+				}
+				key.append(file.getCanonicalPath()).append('|').append(file.length()).append('|')
+						.append(file.lastModified()).append('|').append(HashUtils.hashFile(file, HashUtils.SHA_1))
+						.append(';');
+			}
+		}
+		return key.length() == 0 ? null : key.toString();
+	}
+
+	private static boolean isImporting(final File file) throws IOException {
+		return file.getName().endsWith(".xml")
+				&& new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains(XML_IMPORT);
+	}
+
+	private static void writeModel(final WroModel model, final DataOutputStream output) throws IOException {
+		final Collection<Group> groups = model.getGroups();
+		output.writeInt(groups.size());
+		for (final Group group : groups) {
+			output.writeUTF(group.getName());
+			final List<Resource> resources = group.getResources();
+			output.writeInt(resources.size());
+			for (final Resource resource : resources) {
+				output.writeUTF(resource.getUri());
+				output.writeUTF(resource.getType().name());
+				output.writeBoolean(resource.isMinimize());
+			}
+		}
+	}
+
+	private static WroModel readModel(final DataInputStream input) throws IOException {
+		final int groupCount = input.readInt();
+		final List<Group> groups = new ArrayList<Group>(groupCount);
+		for (int i = 0; i < groupCount; i++) {
+			final Group group = new Group(input.readUTF());
+			final int resourceCount = input.readInt();
+			for (int j = 0; j < resourceCount; j++) {
+				final Resource resource = Resource.create(input.readUTF(), ResourceType.valueOf(input.readUTF()));
+				resource.setMinimize(input.readBoolean());
+				group.addResource(resource);
+			}
+			groups.add(group);
+		}
+		return new WroModel().setGroups(groups);
+	}
+}
@@ -0,0 +1,31 @@
+package ro.isdc.wro.runner.support;
+
+import ro.isdc.wro.cache.CacheKey;
+import ro.isdc.wro.cache.CacheStrategy;
+import ro.isdc.wro.cache.CacheValue;
+
+/**
+ * A {@link CacheStrategy} which stores nothing. The runner processes every
+ * group once per build, caching the result would only hold memory and return
+ * stale content on the rebuilds of the watch mode.
+ *
+ * @author Ricardo Nunes
+ */
+public class NoOpCacheStrategy implements CacheStrategy<CacheKey, CacheValue> {
+	@Override
+	public void put(final CacheKey key, final CacheValue value) {
+	}
+
+	@Override
+	public CacheValue get(final CacheKey key) {
+		return null;
+	}
+
+	@Override
+	public void clear() {
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
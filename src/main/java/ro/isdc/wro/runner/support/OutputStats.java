@@ -0,0 +1,42 @@
+package ro.isdc.wro.runner.support;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts what happened to the group outputs of a run: written, left unchanged
+ * because the destination already had the same content, or deleted because
+ * the group produced no content. Safe to use from the group processing
+ * threads.
+ *
+ * @author Ricardo Nunes
+ */
+public class OutputStats {
+	private static final Logger LOG = LoggerFactory.getLogger(OutputStats.class);
+
+	private final AtomicInteger written = new AtomicInteger();
+	private final AtomicInteger unchanged = new AtomicInteger();
+	private final AtomicInteger deleted = new AtomicInteger();
+
+	public void written() {
+		written.incrementAndGet();
+	}
+
+	public void unchanged() {
+		unchanged.incrementAndGet();
+	}
+
+	public void deleted() {
+		deleted.incrementAndGet();
+	}
+
+	/**
+	 * Logs the counters and starts counting again.
+	 */
+	public void logAndReset() {
+		LOG.info("outputs: {} written, {} unchanged, {} deleted", written.getAndSet(0), unchanged.getAndSet(0),
+				deleted.getAndSet(0));
+	}
+}
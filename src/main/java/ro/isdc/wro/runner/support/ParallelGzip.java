@@ -0,0 +1,219 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Writes the gzip version of a file, to be served as a precompressed sibling
+ * (e.g. by nginx {@code gzip_static}).
+ * <p/>
+ * Large files are split in blocks compressed in parallel, like pigz does:
+ * every block is a raw deflate stream primed with the last 32KB of the previous
+ * block as dictionary and ended with a sync flush, except the last one which
+ * is finished. The compressed blocks are concatenated between a gzip header
+ * and a trailer holding the CRC32 and the size of the whole input, so the
+ * result is a regular single member gzip file.
+ *
+ * @author Ricardo Nunes
+ */
+public class ParallelGzip {
+	public static final String EXTENSION = ".gz";
+	private static final int BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private final int level;
+	private final ExecutorService executor;
+
+	/**
+	 * @param level   the deflate level, from 1 to 9.
+	 * @param threads number of threads compressing the blocks.
+	 */
+	public ParallelGzip(final int level, final int threads) {
+		Validate.isTrue(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION,
+				"Gzip level must be between 1 and 9, but was: %s", level);
+		this.level = level;
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "gzip-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return the path of the gzip sibling of the file.
+	 */
+	public static Path getSibling(final Path file) {
+		return file.resolveSibling(file.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * Compresses the file into its {@link #getSibling(Path)}, replaced
+	 * atomically when the file system supports it.
+	 */
+	public void compress(final Path file) throws IOException {
+		final Path target = getSibling(file);
+		final Path tempFile = File.createTempFile(".wro4j-", ".gz.tmp", file.getParent().toFile()).toPath();
+		try {
+			final OutputStream output = Files.newOutputStream(tempFile);
+			try {
+				compress(file, output);
+			} finally {
+				output.close();
+			}
+			try {
+				Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private void compress(final Path file, final OutputStream output) throws IOException {
+		final CRC32 crc = new CRC32();
+		final List<Future<byte[]>> blocks = new ArrayList<Future<byte[]>>();
+		long size = 0;
+		final InputStream input = Files.newInputStream(file);
+		try {
+			byte[] previous = null;
+			byte[] block = readBlock(input);
+			while (block != null) {
+				final byte[] next = readBlock(input);
+				crc.update(block);
+				size += block.length;
+				final Callable<byte[]> task = newBlockTask(block, previous, next == null);
+				if (previous == null && next == null) {
+					// a single block, not worth a thread switch
+					final FutureTask<byte[]> future = new FutureTask<byte[]>(task);
+					future.run();
+					blocks.add(future);
+				} else {
+					blocks.add(executor.submit(task));
+				}
+				previous = block;
+				block = next;
+			}
+		} finally {
+			input.close();
+		}
+		output.write(HEADER);
+		if (blocks.isEmpty()) {
+			output.write(deflate(new byte[0], null, true));
+		}
+		for (final Future<byte[]> future : blocks) {
+			output.write(await(future));
+		}
+		writeInt(output, (int) crc.getValue());
+		writeInt(output, (int) size);
+	}
+
+	private Callable<byte[]> newBlockTask(final byte[] block, final byte[] previous, final boolean last) {
+		return new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws Exception {
+				return deflate(block, previous, last);
+			}
+		};
+	}
+
+	private byte[] deflate(final byte[] block, final byte[] previous, final boolean last) {
+		final Deflater deflater = new Deflater(level, true);
+		try {
+			if (previous != null) {
+				deflater.setDictionary(previous, Math.max(0, previous.length - DICTIONARY_SIZE),
+						Math.min(DICTIONARY_SIZE, previous.length));
+			}
+			deflater.setInput(block);
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(block.length / 2 + 64);
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					output.write(buffer, 0, deflater.deflate(buffer));
+				}
+			} else {
+				int count;
+				do {
+					// the stream stays open and ends on a byte boundary
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					output.write(buffer, 0, count);
+				} while (count == buffer.length);
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * @return the next block of the input, null at its end.
+	 */
+	private static byte[] readBlock(final InputStream input) throws IOException {
+		final byte[] block = new byte[BLOCK_SIZE];
+		int length = 0;
+		int count;
+		while (length < BLOCK_SIZE && (count = input.read(block, length, BLOCK_SIZE - length)) >= 0) {
+			length += count;
+		}
+		if (length == 0) {
+			return null;
+		}
+		return length == BLOCK_SIZE ? block : Arrays.copyOf(block, length);
+	}
+
+	private static byte[] await(final Future<byte[]> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (final ExecutionException e) {
+			throw new IOException("Cannot compress", e.getCause());
+		}
+	}
+
+	/**
+	 * Writes the value in little endian order, as gzip expects.
+	 */
+	private static void writeInt(final OutputStream output, final int value) throws IOException {
+		output.write(value & 0xff);
+		output.write((value >>> 8) & 0xff);
+		output.write((value >>> 16) & 0xff);
+		output.write((value >>> 24) & 0xff);
+	}
+
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
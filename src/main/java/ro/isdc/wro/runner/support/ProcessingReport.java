@@ -0,0 +1,326 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ro.isdc.wro.config.Context;
+
+/**
+ * Collects the duration of every group and of every processor call of a run.
+ * Processor calls are correlated to their group using the {@link Context}
+ * correlation id, which is propagated to the threads used for parallel pre
+ * processing. The result is written as a JSON file and summarized in the log.
+ * <p/>
+ * A processor may call other measured processors, like the import aware pre
+ * processors run on every import; the processor totals only count the self
+ * time of every call, excluding the nested calls made on the same thread.
+ *
+ * @author Ricardo Nunes
+ */
+public class ProcessingReport {
+	private static final Logger LOG = LoggerFactory.getLogger(ProcessingReport.class);
+	public static final int DEFAULT_TOP = 10;
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final Map<String, String> groupsByCorrelationId = new ConcurrentHashMap<String, String>();
+	private final List<Entry> groups = new ArrayList<Entry>();
+	private final List<Entry> processorCalls = new ArrayList<Entry>();
+	/**
+	 * Processor calls running on the current thread, innermost last.
+	 */
+	private final ThreadLocal<LinkedList<Entry>> runningProcessors = new ThreadLocal<LinkedList<Entry>>() {
+		@Override
+		protected LinkedList<Entry> initialValue() {
+			return new LinkedList<Entry>();
+		}
+	};
+
+	/**
+	 * A measured unit of work: a group or a single processor call.
+	 */
+	public static class Entry {
+		private final String name;
+		private final String group;
+		private final String resource;
+		private final String thread = Thread.currentThread().getName();
+		private final long startNanos = System.nanoTime();
+		private final long startCpuNanos = getCurrentThreadCpuTime();
+		private long wallNanos;
+		private long cpuNanos;
+		/**
+		 * Time spent in the processor calls nested in this one.
+		 */
+		private long nestedWallNanos;
+		private long nestedCpuNanos;
+		private long input = -1;
+		private long output = -1;
+		private boolean failed;
+
+		private Entry(final String name, final String group, final String resource) {
+			this.name = name;
+			this.group = group;
+			this.resource = resource;
+		}
+
+		/**
+		 * Must be called by the thread which created the entry.
+		 */
+		private void stop() {
+			wallNanos = System.nanoTime() - startNanos;
+			final long cpuTime = getCurrentThreadCpuTime();
+			cpuNanos = cpuTime < 0 || startCpuNanos < 0 ? -1 : cpuTime - startCpuNanos;
+		}
+
+		private long getSelfWallNanos() {
+			return wallNanos - nestedWallNanos;
+		}
+
+		private long getSelfCpuNanos() {
+			return cpuNanos < 0 ? -1 : cpuNanos - nestedCpuNanos;
+		}
+	}
+
+	/**
+	 * Starts measuring the group processed by the context set on the current
+	 * thread.
+	 *
+	 * @param group the group name with extension.
+	 */
+	public Entry startGroup(final String group) {
+		groupsByCorrelationId.put(Context.getCorrelationId(), group);
+		return new Entry(group, group, null);
+	}
+
+	/**
+	 * @param outputBytes the size of the group result.
+	 */
+	public void finishGroup(final Entry entry, final long outputBytes, final boolean failed) {
+		entry.stop();
+		entry.output = outputBytes;
+		entry.failed = failed;
+		groupsByCorrelationId.remove(Context.getCorrelationId());
+		synchronized (groups) {
+			groups.add(entry);
+		}
+	}
+
+	/**
+	 * Starts measuring a processor call made for the group of the context set on
+	 * the current thread.
+	 */
+	public Entry startProcessor(final String alias, final String resourceUri) {
+		final String group = Context.isContextSet() ? groupsByCorrelationId.get(Context.getCorrelationId()) : null;
+		final Entry entry = new Entry(alias, group, resourceUri);
+		runningProcessors.get().addLast(entry);
+		return entry;
+	}
+
+	public void finishProcessor(final Entry entry, final long inputChars, final long outputChars,
+			final boolean failed) {
+		entry.stop();
+		entry.input = inputChars;
+		entry.output = outputChars;
+		entry.failed = failed;
+		final LinkedList<Entry> running = runningProcessors.get();
+		running.removeLastOccurrence(entry);
+		if (!running.isEmpty()) {
+			final Entry parent = running.getLast();
+			parent.nestedWallNanos += entry.wallNanos;
+			parent.nestedCpuNanos += Math.max(0, entry.cpuNanos);
+		}
+		synchronized (processorCalls) {
+			processorCalls.add(entry);
+		}
+	}
+
+	/**
+	 * Forgets all the collected entries, used before processing again in watch
+	 * mode.
+	 */
+	public void reset() {
+		synchronized (groups) {
+			groups.clear();
+		}
+		synchronized (processorCalls) {
+			processorCalls.clear();
+		}
+	}
+
+	/**
+	 * Writes the collected entries as JSON.
+	 */
+	public void write(final File file) throws IOException {
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			FileUtils.forceMkdir(parent);
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("{\n  \"groups\": [");
+			writeEntries(writer, getGroups(), false);
+			writer.write("],\n  \"processors\": [");
+			writeEntries(writer, getProcessorCalls(), true);
+			writer.write("],\n  \"processorTotals\": [");
+			writeEntries(writer, getProcessorTotals(), false);
+			writer.write("]\n}\n");
+		} finally {
+			writer.close();
+		}
+		LOG.info("Processing report written to: {}", file.getAbsolutePath());
+	}
+
+	/**
+	 * Logs the slowest groups and the processors which took most of the time.
+	 */
+	public void logSummary(final int top) {
+		final List<Entry> slowestGroups = sortByWallTime(getGroups());
+		LOG.info("Slowest groups:");
+		for (final Entry entry : slowestGroups.subList(0, Math.min(top, slowestGroups.size()))) {
+			LOG.info("  {}: {}ms (cpu {}ms, {} bytes) on {}", entry.name, toMillis(entry.wallNanos),
+					toMillis(entry.cpuNanos), entry.output, entry.thread);
+		}
+		final List<Entry> slowestProcessors = sortByWallTime(getProcessorTotals());
+		LOG.info("Slowest processors (self time):");
+		for (final Entry entry : slowestProcessors.subList(0, Math.min(top, slowestProcessors.size()))) {
+			LOG.info("  {}: {}ms (cpu {}ms, {} -> {} chars)", entry.name, toMillis(entry.wallNanos),
+					toMillis(entry.cpuNanos), entry.input, entry.output);
+		}
+	}
+
+	private List<Entry> getGroups() {
+		synchronized (groups) {
+			return new ArrayList<Entry>(groups);
+		}
+	}
+
+	private List<Entry> getProcessorCalls() {
+		synchronized (processorCalls) {
+			return new ArrayList<Entry>(processorCalls);
+		}
+	}
+
+	/**
+	 * @return one entry per processor alias, summing the self time of all its
+	 *         calls.
+	 */
+	private List<Entry> getProcessorTotals() {
+		final Map<String, Entry> totals = new LinkedHashMap<String, Entry>();
+		for (final Entry call : getProcessorCalls()) {
+			Entry total = totals.get(call.name);
+			if (total == null) {
+				total = new Entry(call.name, null, null);
+				total.input = 0;
+				total.output = 0;
+				totals.put(call.name, total);
+			}
+			total.wallNanos += call.getSelfWallNanos();
+			total.cpuNanos += Math.max(0, call.getSelfCpuNanos());
+			total.input += Math.max(0, call.input);
+			total.output += Math.max(0, call.output);
+			total.failed |= call.failed;
+		}
+		return new ArrayList<Entry>(totals.values());
+	}
+
+	private static List<Entry> sortByWallTime(final List<Entry> entries) {
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(final Entry first, final Entry second) {
+				return first.wallNanos == second.wallNanos ? 0 : first.wallNanos > second.wallNanos ? -1 : 1;
+			}
+		});
+		return entries;
+	}
+
+	private static void writeEntries(final Writer writer, final List<Entry> entries, final boolean processorCall)
+			throws IOException {
+		for (int i = 0; i < entries.size(); i++) {
+			final Entry entry = entries.get(i);
+			writer.write(i == 0 ? "\n    {" : ",\n    {");
+			writer.write("\"name\": " + quote(entry.name));
+			if (processorCall) {
+				writer.write(", \"group\": " + quote(entry.group));
+				writer.write(", \"resource\": " + quote(entry.resource));
+				writer.write(", \"thread\": " + quote(entry.thread));
+			} else if (entry.group != null) {
+				writer.write(", \"thread\": " + quote(entry.thread));
+			}
+			writer.write(", \"wallMillis\": " + toMillis(entry.wallNanos));
+			writer.write(", \"cpuMillis\": " + toMillis(entry.cpuNanos));
+			if (processorCall) {
+				writer.write(", \"selfWallMillis\": " + toMillis(entry.getSelfWallNanos()));
+				writer.write(", \"selfCpuMillis\": " + toMillis(entry.getSelfCpuNanos()));
+			}
+			if (entry.group != null && !processorCall) {
+				writer.write(", \"outputBytes\": " + entry.output);
+			} else {
+				writer.write(", \"inputChars\": " + entry.input);
+				writer.write(", \"outputChars\": " + entry.output);
+			}
+			writer.write(", \"failed\": " + entry.failed + "}");
+		}
+		if (!entries.isEmpty()) {
+			writer.write("\n  ");
+		}
+	}
+
+	private static String quote(final String value) {
+		if (value == null) {
+			return "null";
+		}
+		final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	private static long toMillis(final long nanos) {
+		return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	private static long getCurrentThreadCpuTime() {
+		return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+	}
+}
@@ -0,0 +1,127 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import ro.isdc.wro.http.support.DelegatingServletOutputStream;
+
+/**
+ * Lightweight servlet objects used to run a {@link ro.isdc.wro.manager.WroManager}
+ * outside of a servlet container. Built on JDK dynamic proxies: only the few
+ * methods used by the runner return a value, all the others return null, false,
+ * zero or an empty collection.
+ *
+ * @author Ricardo Nunes
+ */
+public final class StandaloneServletObjects {
+	private static final ClassLoader CLASS_LOADER = StandaloneServletObjects.class.getClassLoader();
+	private static final FilterConfig FILTER_CONFIG = newProxy(FilterConfig.class,
+			Collections.<String, Object> emptyMap());
+
+	private StandaloneServletObjects() {
+	}
+
+	/**
+	 * @return a request for the given uri.
+	 */
+	public static HttpServletRequest newRequest(final String requestUri) {
+		final Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getRequestURI", requestUri);
+		return newProxy(HttpServletRequest.class, values);
+	}
+
+	/**
+	 * @return a response writing its content to the given stream.
+	 */
+	public static HttpServletResponse newResponse(final OutputStream outputStream) {
+		final Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getOutputStream", new DelegatingServletOutputStream(outputStream));
+		return newProxy(HttpServletResponse.class, values);
+	}
+
+	/**
+	 * @return a stateless filter config, without servlet context.
+	 */
+	public static FilterConfig getFilterConfig() {
+		return FILTER_CONFIG;
+	}
+
+	private static <T> T newProxy(final Class<T> type, final Map<String, Object> values) {
+		return type.cast(Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[] { type }, new Answers(type, values)));
+	}
+
+	/**
+	 * Answers the invocations of parameterless methods found in the values map
+	 * and returns a default value for all the others.
+	 */
+	private static final class Answers implements InvocationHandler {
+		private final Class<?> type;
+		private final Map<String, Object> values;
+
+		private Answers(final Class<?> type, final Map<String, Object> values) {
+			this.type = type;
+			this.values = values;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+			final String name = method.getName();
+			final int argumentCount = args == null ? 0 : args.length;
+			if (argumentCount == 0 && values.containsKey(name)) {
+				return values.get(name);
+			}
+			if ("equals".equals(name) && argumentCount == 1) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name) && argumentCount == 0) {
+				return System.identityHashCode(proxy);
+			}
+			if ("toString".equals(name) && argumentCount == 0) {
+				return type.getSimpleName() + values;
+			}
+			return defaultValue(method.getReturnType());
+		}
+
+		private Object defaultValue(final Class<?> returnType) {
+			if (returnType == boolean.class) {
+				return Boolean.FALSE;
+			} else if (returnType == int.class) {
+				return 0;
+			} else if (returnType == long.class) {
+				return 0L;
+			} else if (returnType == short.class) {
+				return (short) 0;
+			} else if (returnType == byte.class) {
+				return (byte) 0;
+			} else if (returnType == char.class) {
+				return (char) 0;
+			} else if (returnType == float.class) {
+				return 0f;
+			} else if (returnType == double.class) {
+				return 0d;
+			} else if (returnType == Enumeration.class) {
+				return Collections.enumeration(Collections.emptyList());
+			} else if (returnType == Map.class) {
+				return Collections.emptyMap();
+			} else if (returnType == Set.class) {
+				return Collections.emptySet();
+			} else if (returnType == List.class || returnType == Collection.class) {
+				return Collections.emptyList();
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package ro.isdc.wro.runner.support;
+
+import java.io.FilterReader;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import ro.isdc.wro.model.resource.Resource;
+import ro.isdc.wro.model.resource.processor.decorator.ProcessorDecorator;
+
+/**
+ * Measures every call of the decorated processor and reports it to a
+ * {@link ProcessingReport}. Extending {@link ProcessorDecorator} keeps the
+ * supported type, minimize and import awareness of the decorated processor.
+ *
+ * @author Ricardo Nunes
+ */
+public class TimedProcessor extends ProcessorDecorator {
+	private final String alias;
+	private final ProcessingReport report;
+
+	public TimedProcessor(final Object processor, final String alias, final ProcessingReport report) {
+		super(processor);
+		this.alias = alias;
+		this.report = report;
+	}
+
+	@Override
+	public void process(final Resource resource, final Reader reader, final Writer writer) throws IOException {
+		final CountingReader countingReader = new CountingReader(reader);
+		final CountingWriter countingWriter = new CountingWriter(writer);
+		final ProcessingReport.Entry entry = report.startProcessor(alias, resource == null ? null : resource.getUri());
+		boolean failed = true;
+		try {
+			super.process(resource, countingReader, countingWriter);
+			failed = false;
+		} finally {
+			report.finishProcessor(entry, countingReader.count, countingWriter.count, failed);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return alias;
+	}
+
+	private static class CountingReader extends FilterReader {
+		private long count;
+
+		CountingReader(final Reader reader) {
+			super(reader);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int c = super.read();
+			if (c >= 0) {
+				count++;
+			}
+			return c;
+		}
+
+		@Override
+		public int read(final char[] buffer, final int offset, final int length) throws IOException {
+			final int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+	}
+
+	private static class CountingWriter extends FilterWriter {
+		private long count;
+
+		CountingWriter(final Writer writer) {
+			super(writer);
+		}
+
+		@Override
+		public void write(final int c) throws IOException {
+			super.write(c);
+			count++;
+		}
+
+		@Override
+		public void write(final char[] buffer, final int offset, final int length) throws IOException {
+			super.write(buffer, offset, length);
+			count += length;
+		}
+
+		@Override
+		public void write(final String value, final int offset, final int length) throws IOException {
+			super.write(value, offset, length);
+			count += length;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package ro.isdc.wro.runner.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Checks that {@link RunnerCSSMinifierProcessor} gives the same output as
+ * {@link RunnerCSSCompressorProcessor} on the stylesheets of the test
+ * resources.
+ * <p/>
+ * Known difference: the YUI compressor keeps the space before
+ * {@code !important}, the minifier removes it.
+ *
+ * @author Ricardo Nunes
+ */
+public class RunnerCSSMinifierProcessorTest {
+	@Test
+	public void shouldMinifyLikeYuiCompressor() throws Exception {
+		final List<File> files = getStylesheets();
+		assertFalse("No stylesheet found", files.isEmpty());
+		for (final File file : files) {
+			final String css = FileUtils.readFileToString(file, "UTF-8");
+			final StringWriter expected = new StringWriter();
+			new RunnerCSSCompressorProcessor().process(null, new StringReader(css), expected);
+			final StringWriter actual = new StringWriter();
+			new RunnerCSSMinifierProcessor().process(null, new StringReader(css), actual);
+			assertEquals(file.getName(), removeKnownDifferences(expected.toString()), actual.toString());
+		}
+	}
+
+	private static String removeKnownDifferences(final String yuiOutput) {
+		return yuiOutput.replace(" !important", "!important");
+	}
+
+	private List<File> getStylesheets() throws URISyntaxException {
+		final File folder = new File(getClass().getResource("/ro/isdc/wro/runner").toURI());
+		final Collection<File> files = FileUtils.listFiles(folder, new String[] { "css" }, true);
+		return new ArrayList<File>(files);
+	}
+}
@@ -0,0 +1,80 @@
+package ro.isdc.wro.runner.processor.css;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Ricardo Nunes
+ */
+public class ScssUseRewriterTest {
+	@Test
+	public void shouldRemoveExplicitNamespace() {
+		assertRewritten("@import 'lib/variables.scss';\na { margin: $spacing; color: darken($color, 10%); }",
+				"@use 'lib/variables' as v;\na { margin: v.$spacing; color: v.darken(v.$color, 10%); }");
+	}
+
+	@Test
+	public void shouldImportModuleUsedWithoutNamespace() {
+		assertRewritten("@import 'lib/variables.scss';\na { margin: $spacing; }",
+				"@use 'lib/variables' as *;\na { margin: $spacing; }");
+	}
+
+	@Test
+	public void shouldRemoveDefaultNamespace() {
+		assertRewritten("@import 'lib/_variables.scss';\na { margin: $spacing; }",
+				"@use \"lib/_variables.scss\";\na { margin: _variables.$spacing; }");
+		assertRewritten("@import 'lib/variables.scss';\na { margin: $spacing; }",
+				"@use 'lib/variables';\na { margin: variables.$spacing; }");
+	}
+
+	@Test
+	public void shouldKeepTheMinusSignOfNegatedMembers() {
+		assertRewritten("@import 'var.scss';\na { margin: -$spacing; }",
+				"@use 'var';\na { margin: -var.$spacing; }");
+		assertRewritten("@import 'v.scss';\na { margin: 0 -$gutter; }",
+				"@use 'v';\na { margin: 0 -v.$gutter; }");
+		assertRewritten("@import 'fnc.scss';\na { margin: -x(1); }",
+				"@use 'fnc';\na { margin: -fnc.x(1); }");
+	}
+
+	@Test
+	public void shouldKeepNamespacesStartingWithMinusSign() {
+		assertRewritten("@import 'v.scss';\na { margin: $spacing; }",
+				"@use 'v' as -v;\na { margin: -v.$spacing; }");
+	}
+
+	@Test
+	public void shouldRemoveNamespaceOfIncludedMixin() {
+		assertRewritten("@import 'mixins.scss';\na { @include clearfix; @include button(red); }",
+				"@use 'mixins' as m;\na { @include m.clearfix; @include m.button(red); }");
+	}
+
+	@Test
+	public void shouldRemoveNamespaceInInterpolation() {
+		assertRewritten("@import 'v.scss';\na { width: calc(100% - #{$gutter}); content: \"#{$name}\"; }",
+				"@use 'v';\na { width: calc(100% - #{v.$gutter}); content: \"#{v.$name}\"; }");
+	}
+
+	@Test
+	public void shouldKeepNamespaceInStringsAndComments() {
+		assertRewritten("@import 'v.scss';\n/* v.$spacing */\n// v.$gutter\na { content: 'v.$x'; font: \"v.f(1)\"; }",
+				"@use 'v';\n/* v.$spacing */\n// v.$gutter\na { content: 'v.$x'; font: \"v.f(1)\"; }");
+	}
+
+	@Test
+	public void shouldKeepSelectorsAndUnknownNamespaces() {
+		assertRewritten("@import 'v.scss';\n.v.active { margin: other.$x; }\na.v { color: $color; }",
+				"@use 'v';\n.v.active { margin: other.$x; }\na.v { color: v.$color; }");
+	}
+
+	@Test
+	public void shouldKeepBuiltInAndConfiguredModules() {
+		final String css = "@use 'sass:math';\n@use 'v' with ($gutter: 1px);\na { width: math.div(1, 2); }";
+		assertRewritten(css, css);
+	}
+
+	private static void assertRewritten(final String expected, final String css) {
+		assertEquals(expected, ScssUseRewriter.rewrite(css));
+	}
+}
@@ -0,0 +1,89 @@
+package ro.isdc.wro.runner.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Ricardo Nunes
+ */
+public class BuildManifestTest {
+	private static final List<String> PARTIALS = Collections.singletonList("/_partial.scss");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	private File contextFolder;
+	private File destinationFolder;
+
+	@Before
+	public void setUp() throws Exception {
+		contextFolder = temporaryFolder.newFolder("context");
+		destinationFolder = temporaryFolder.newFolder("destination");
+		write("/a.scss", "@import 'partial';");
+		write("/b.scss", "@import 'partial';");
+		write("/_partial.scss", "$color: red;");
+	}
+
+	@Test
+	public void shouldRebuildEveryGroupImportingAChangedPartial() throws Exception {
+		final BuildManifest manifest = newManifest();
+		manifest.update("a.css", declared("a"), PARTIALS, "");
+		manifest.update("b.css", declared("b"), PARTIALS, "");
+		assertTrue(manifest.isUpToDate("a.css", declared("a")));
+		assertTrue(manifest.isUpToDate("b.css", declared("b")));
+
+		write("/_partial.scss", "$color: darkblue;");
+		assertFalse(manifest.isUpToDate("a.css", declared("a")));
+		manifest.update("a.css", declared("a"), PARTIALS, "");
+
+		assertTrue(manifest.isUpToDate("a.css", declared("a")));
+		assertFalse(manifest.isUpToDate("b.css", declared("b")));
+	}
+
+	@Test
+	public void shouldKeepTheInputsOfEachGroupBetweenRuns() throws Exception {
+		final BuildManifest manifest = newManifest();
+		manifest.update("a.css", declared("a"), PARTIALS, "");
+		manifest.update("b.css", declared("b"), PARTIALS, "");
+		manifest.save();
+
+		write("/_partial.scss", "$color: darkblue;");
+		final BuildManifest nextRun = newManifest();
+		nextRun.update("a.css", declared("a"), PARTIALS, "");
+		nextRun.save();
+
+		assertFalse(newManifest().isUpToDate("b.css", declared("b")));
+	}
+
+	@Test
+	public void shouldFindTheGroupsAffectedByASharedPartial() {
+		final BuildManifest manifest = newManifest();
+		manifest.update("a.css", declared("a"), PARTIALS, "");
+		manifest.update("b.css", declared("b"), Collections.<String> emptyList(), "");
+		assertEquals(Collections.singleton("a.css"), manifest.getGroupsAffectedBy(PARTIALS));
+		assertEquals(Collections.singleton("b.css"), manifest.getGroupsAffectedBy(Arrays.asList("/b.scss")));
+	}
+
+	private BuildManifest newManifest() {
+		return new BuildManifest(contextFolder, destinationFolder, "configuration");
+	}
+
+	private static List<String> declared(final String name) {
+		return Collections.singletonList("/" + name + ".scss");
+	}
+
+	private void write(final String uri, final String content) throws Exception {
+		FileUtils.writeStringToFile(new File(contextFolder, uri), content, "UTF-8");
+	}
+}
@@ -0,0 +1,53 @@
+package ro.isdc.wro.runner.support;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Ricardo Nunes
+ */
+public class MemoryBudgetTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	private MemoryBudget budget;
+
+	@Before
+	public void setUp() throws Exception {
+		final File contextFolder = temporaryFolder.newFolder("context");
+		FileUtils.writeStringToFile(new File(contextFolder, "/css/a.css"), "1234", "UTF-8");
+		FileUtils.writeStringToFile(new File(contextFolder, "/css/b.css"), "12", "UTF-8");
+		FileUtils.writeStringToFile(new File(contextFolder, "/css/lib/c.css"), "1", "UTF-8");
+		FileUtils.writeStringToFile(new File(contextFolder, "/css/lib/c.js"), "12345678", "UTF-8");
+		budget = new MemoryBudget(1024, contextFolder);
+	}
+
+	@Test
+	public void shouldCountFilesOnce() {
+		assertEquals(6 * MemoryBudget.IN_MEMORY_FACTOR, budget.estimate(Arrays.asList("/css/a.css", "/css/b.css",
+				"/css/a.css")));
+	}
+
+	@Test
+	public void shouldExpandWildcards() {
+		assertEquals(6 * MemoryBudget.IN_MEMORY_FACTOR, budget.estimate(Collections.singletonList("/css/*.css")));
+		assertEquals(7 * MemoryBudget.IN_MEMORY_FACTOR, budget.estimate(Collections.singletonList("/css/**.css")));
+		assertEquals(7 * MemoryBudget.IN_MEMORY_FACTOR, budget.estimate(Arrays.asList("/css/**.css", "/css/a.css")));
+		assertEquals(0, budget.estimate(Collections.singletonList("/missing/*.css")));
+	}
+
+	@Test
+	public void shouldCountUnknownResourcesConservatively() {
+		assertEquals(MemoryBudget.UNKNOWN_RESOURCE_SIZE * MemoryBudget.IN_MEMORY_FACTOR,
+				budget.estimate(Collections.singletonList("classpath:ro/isdc/wro/runner/style.css")));
+		assertEquals(MemoryBudget.UNKNOWN_RESOURCE_SIZE * MemoryBudget.IN_MEMORY_FACTOR, budget.estimate(null));
+	}
+}